@@ -0,0 +1,31 @@
+package menu.benchmark;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * The fixtures in <code>src/jmh/resources/fixtures</code> are synthetic pages written after the markup that the menu
+ * parser expects, with a realistic amount of menus, features and surrounding page content. They are not byte-for-byte
+ * recordings of the stw-ma responses.
+ * <p>
+ * The week response holds the five days of the week of the day response, each in its own table below a dated heading,
+ * followed by a single legend. The {@link menu.loadtest.MockUpstreamServer} serves it for <code>mode=week</code>.
+ */
+public class Fixtures {
+
+    public static final String API_DAY_RESPONSE = "/fixtures/stw-ma-tagessicht-api-day.json";
+    public static final String API_WEEK_RESPONSE = "/fixtures/stw-ma-tagessicht-api-week.json";
+    public static final String LEGACY_DAY_PAGE = "/fixtures/stw-ma-tagessicht-legacy-day.html";
+
+    public static byte[] load(String resourceName) {
+        try (InputStream in = Objects.requireNonNull(Fixtures.class.getResourceAsStream(resourceName), resourceName)) {
+            return IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load fixture " + resourceName, e);
+        }
+    }
+}
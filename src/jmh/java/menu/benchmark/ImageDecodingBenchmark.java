@@ -0,0 +1,68 @@
+package menu.benchmark;
+
+import menu.service.ImageUtils;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of a large preview image photo and scaling it to the preview height. Run with <code>-prof gc</code> to see
+ * the memory the full resolution decode allocates per image in <code>gc.alloc.rate.norm</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImageDecodingBenchmark {
+
+    private static final int TARGET_HEIGHT = 300;
+
+    private byte[] photo;
+
+    @Setup
+    public void setup() throws IOException {
+        final BufferedImage image = new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g2d = image.createGraphics();
+        g2d.setPaint(new GradientPaint(0, 0, Color.ORANGE, 4000, 3000, Color.DARK_GRAY));
+        g2d.fillRect(0, 0, 4000, 3000);
+        for (int i = 0; i < 200; i++) {
+            g2d.setColor(new Color(i * 37 % 256, i * 91 % 256, i * 53 % 256));
+            g2d.fillOval(i * 97 % 4000, i * 61 % 3000, 150 + i % 250, 150 + i % 250);
+        }
+        g2d.dispose();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        photo = out.toByteArray();
+    }
+
+    /**
+     * The previous path for comparison: decoding at full resolution before scaling.
+     */
+    @Benchmark
+    public BufferedImage fullResolution() throws IOException {
+        return scale(ImageIO.read(new ByteArrayInputStream(photo)));
+    }
+
+    /**
+     * The current path: only every n-th row and column is decoded.
+     */
+    @Benchmark
+    public BufferedImage subsampled() throws IOException {
+        return scale(ImageUtils.decodeImage(new ByteArrayInputStream(photo), TARGET_HEIGHT));
+    }
+
+    private static BufferedImage scale(BufferedImage image) {
+        final int width = (int) ((double) image.getWidth() / image.getHeight() * TARGET_HEIGHT);
+        final BufferedImage scaled = new BufferedImage(width, TARGET_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g2d = scaled.createGraphics();
+        g2d.drawImage(image, 0, 0, width, TARGET_HEIGHT, null);
+        g2d.dispose();
+        return scaled;
+    }
+}
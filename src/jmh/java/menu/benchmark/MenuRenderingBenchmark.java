@@ -0,0 +1,96 @@
+package menu.benchmark;
+
+import menu.bot.BotData;
+import menu.bot.commands.MenuCommand;
+import menu.providers.MenuItem;
+import menu.providers.MenuItemsProvider;
+import menu.providers.MenuTime;
+import menu.providers.implementations.TagessichtMenuParser;
+import menu.service.LanguageManager;
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of the menu embed from already parsed menu items and the translation lookups it depends on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MenuRenderingBenchmark {
+
+    private static final MenuTime DATE = new MenuTime(2026, 10, 19);
+
+    private MenuCommand menuCommand;
+    private MenuItemsProvider provider;
+    private MenuCommand.MenuCommandData menuCommandData;
+    private File botDataFile;
+
+    @Setup
+    public void setup() throws IOException {
+        final List<MenuItem> menuItems = TagessichtMenuParser.parseMenuItems(
+                Jsoup.parse(new ByteArrayInputStream(Fixtures.load(Fixtures.LEGACY_DAY_PAGE)), "UTF-8", ""), DATE);
+
+        provider = new MenuItemsProvider() {
+            @Override
+            public String getName() {
+                return "Benchmark";
+            }
+
+            @Override
+            public String getDisplayMenuLink() {
+                return "http://localhost/menu";
+            }
+
+            @Override
+            public String getProviderThumbnail() {
+                return "http://localhost/thumbnail.png";
+            }
+
+            @Override
+            public CompletableFuture<List<MenuItem>> getMenuItemsForDate(MenuTime date) {
+                return CompletableFuture.completedFuture(menuItems);
+            }
+
+            @Override
+            public List<String> getMenuEmojis(List<MenuItem> items) {
+                return Arrays.asList("1⃣", "2⃣", "3⃣");
+            }
+        };
+
+        botDataFile = Files.createTempFile("bite-board-benchmark", ".json").toFile();
+        botDataFile.delete();
+        menuCommand = new MenuCommand(null, null, new BotData(botDataFile), Runnable::run);
+        menuCommandData = new MenuCommand.MenuCommandData("Menu", new Date(), DATE);
+        LanguageManager.get();
+    }
+
+    @TearDown
+    public void tearDown() {
+        botDataFile.delete();
+    }
+
+    @Benchmark
+    public MenuCommand.ConstructedMenuEmbed constructMenuEmbed() {
+        return menuCommand.constructMenuEmbed(provider, menuCommandData).join();
+    }
+
+    @Benchmark
+    public String getTranslation() {
+        return LanguageManager.get().getTranslation("command.menu.response.menu.description");
+    }
+
+    @Benchmark
+    public String getTranslationOtherLanguage() {
+        return LanguageManager.get().getTranslation("command.menu.response.menu.noIngredientsDescription", "de");
+    }
+}
@@ -0,0 +1,94 @@
+package menu.benchmark;
+
+import menu.providers.MenuItem;
+import menu.providers.MenuItemFeature;
+import menu.providers.MenuItemIngredient;
+import menu.providers.MenuTime;
+import menu.providers.implementations.TagessichtMenuParser;
+import menu.service.JsonStringFieldReader;
+import org.json.JSONObject;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a single day of the Tagessicht menu, from the raw response to the menu items. Run with
+ * <code>-prof gc</code> to see the allocations per page in <code>gc.alloc.rate.norm</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TagessichtParsingBenchmark {
+
+    private static final MenuTime DATE = new MenuTime(2026, 10, 19);
+
+    private byte[] apiResponse;
+    private byte[] legacyPage;
+    private Document apiDocument;
+    private Map<String, MenuItemFeature> features;
+
+    @Setup
+    public void setup() throws IOException {
+        apiResponse = Fixtures.load(Fixtures.API_DAY_RESPONSE);
+        legacyPage = Fixtures.load(Fixtures.LEGACY_DAY_PAGE);
+        apiDocument = parseApiResponseStreaming();
+        features = TagessichtMenuParser.parseMenuItemFeatures(apiDocument);
+    }
+
+    /**
+     * The current path: the <code>content</code> field is decoded straight into the HTML parser.
+     */
+    @Benchmark
+    public Document parseApiResponseStreaming() throws IOException {
+        try (Reader content = new BufferedReader(new JsonStringFieldReader(new InputStreamReader(new ByteArrayInputStream(apiResponse), StandardCharsets.UTF_8), "content"))) {
+            return Parser.htmlParser().parseInput(content, "");
+        }
+    }
+
+    /**
+     * The previous path for comparison: body string, JSON object and HTML string before parsing.
+     */
+    @Benchmark
+    public Document parseApiResponseViaStrings() {
+        return Jsoup.parse(new JSONObject(new String(apiResponse, StandardCharsets.UTF_8)).getString("content"));
+    }
+
+    @Benchmark
+    public List<MenuItem> parseMenuItems() {
+        return TagessichtMenuParser.parseMenuItems(apiDocument, DATE);
+    }
+
+    @Benchmark
+    public Map<String, MenuItemFeature> parseMenuItemFeatures() {
+        return TagessichtMenuParser.parseMenuItemFeatures(apiDocument);
+    }
+
+    @Benchmark
+    public List<MenuItemIngredient> parseIngredients() {
+        return TagessichtMenuParser.parseIngredients("Hähnchenbrust in Rahmsoße (Gl,We,Mi,G), Butterreis (Mi), Erbsen-Möhren-Gemüse (V), Gurkensalat (Sf,3)", features, "Menü 1");
+    }
+
+    /**
+     * The whole way from the API response to the menu items, as done per request by the provider.
+     */
+    @Benchmark
+    public List<MenuItem> apiResponseToMenuItems() throws IOException {
+        return TagessichtMenuParser.parseMenuItems(parseApiResponseStreaming(), DATE);
+    }
+
+    @Benchmark
+    public List<MenuItem> legacyPageToMenuItems() throws IOException {
+        return TagessichtMenuParser.parseMenuItems(Jsoup.parse(new ByteArrayInputStream(legacyPage), "UTF-8", ""), DATE);
+    }
+}
@@ -0,0 +1,226 @@
+package menu.loadtest;
+
+import menu.bot.BiteBoardProperties;
+import menu.bot.BotData;
+import menu.bot.commands.MenuCommand;
+import menu.providers.MenuCacheWarmer;
+import menu.providers.MenuItemsCache;
+import menu.providers.MenuItemsProvider;
+import menu.providers.MenuItemsProviderManager;
+import menu.providers.implementations.HochschuleMannheimTagessichtMenuProvider;
+import menu.providers.implementations.LegacyHochschuleMannheimTagessichtMenuProvider;
+import menu.providers.implementations.StwMaTagessichtMenuProvider;
+import menu.service.CachingImageSearch;
+import menu.service.FetchExecutor;
+import menu.service.FutureUtils;
+import menu.service.ImageSearcher;
+import menu.service.ImageStore;
+import menu.service.SiteFetcher;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fires simulated <code>/menu</code> commands against the {@link MockUpstreamServer}. Every command is a
+ * {@link SimulatedInteraction} handed to {@link MenuCommand#onSlashCommandInteraction} on a single thread, like the JDA
+ * event thread does, and goes through the same provider manager, caches and executors the bot uses, just without
+ * sending anything to Discord. Each command is timed from its start to its first and to its final reply.
+ * <p>
+ * Options are passed as <code>key=value</code> arguments:
+ * <ul>
+ *     <li><code>commands</code> (200): number of menu commands</li>
+ *     <li><code>concurrency</code> (20): commands running at the same time</li>
+ *     <li><code>days</code> (5): number of day subcommands the commands are spread over, in the order
+ *     <code>monday</code> to <code>friday</code>, <code>today</code>, <code>tomorrow</code>, <code>overmorrow</code></li>
+ *     <li><code>latency</code> / <code>jitter</code> (50 / 50): upstream response delay in milliseconds</li>
+ *     <li><code>errorRate</code> (0): share of upstream requests that fail</li>
+ *     <li><code>provider</code> (api): <code>api</code> or <code>legacy</code></li>
+ *     <li><code>locations</code> (1): number of stw-ma canteens the commands are spread over, <code>api</code> only, each
+ *     with its own user that prefers it</li>
+ *     <li><code>images</code> (true): whether to search, download and combine the images, a command is only finished
+ *     with its preview then</li>
+ *     <li><code>cache</code> (true): whether the menu cache is enabled</li>
+ *     <li><code>imageStore</code> (false): whether to keep the downloaded images in a temporary {@link ImageStore}</li>
+ *     <li><code>warm</code> (false): whether to warm the menu cache before the first command</li>
+ *     <li><code>executionMode</code> (platform): <code>platform</code> or <code>virtual</code></li>
+ *     <li><code>imageDownloadRateLimit</code> (0): image downloads per second, <code>0</code> for unlimited like the bot
+ *     default; all mock upstreams share one host, so any limit applies to every download</li>
+ * </ul>
+ * Besides the latencies, the peak number of JVM threads during the commands is printed, to compare both execution modes.
+ * Virtual threads need Java 21, on older versions <code>virtual</code> falls back to platform threads.
+ */
+public class MenuLoadDriver {
+
+    private static final List<String> DAY_SUBCOMMANDS = Arrays.asList("monday", "tuesday", "wednesday", "thursday", "friday", "today", "tomorrow", "overmorrow");
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (separator == -1) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        final int commands = Integer.parseInt(options.getOrDefault("commands", "200"));
+        final int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "20"));
+        final int days = Math.max(1, Math.min(DAY_SUBCOMMANDS.size(), Integer.parseInt(options.getOrDefault("days", "5"))));
+        final long latency = Long.parseLong(options.getOrDefault("latency", "50"));
+        final long jitter = Long.parseLong(options.getOrDefault("jitter", "50"));
+        final double errorRate = Double.parseDouble(options.getOrDefault("errorRate", "0"));
+        final boolean legacy = options.getOrDefault("provider", "api").equals("legacy");
+        final boolean images = Boolean.parseBoolean(options.getOrDefault("images", "true"));
+        final boolean cache = Boolean.parseBoolean(options.getOrDefault("cache", "true"));
+        final boolean warm = Boolean.parseBoolean(options.getOrDefault("warm", "false"));
+        final boolean imageStore = Boolean.parseBoolean(options.getOrDefault("imageStore", "false"));
+        final int locations = legacy ? 1 : Math.max(1, Integer.parseInt(options.getOrDefault("locations", "1")));
+
+        try (MockUpstreamServer upstream = new MockUpstreamServer(latency, jitter, errorRate)) {
+            final Properties properties = BiteBoardProperties.getProperties();
+            properties.setProperty(BiteBoardProperties.STW_MA_API_BASE_URL, upstream.getBaseUrl());
+            properties.setProperty(BiteBoardProperties.STW_MA_WEBSITE_BASE_URL, upstream.getBaseUrl());
+            properties.setProperty(BiteBoardProperties.GOOGLE_IMAGE_PAGE_BASE_URL, upstream.getBaseUrl());
+            properties.setProperty(BiteBoardProperties.EXECUTION_MODE, options.getOrDefault("executionMode", "platform"));
+            properties.setProperty("http" + SiteFetcher.ClientProfile.IMAGE_DOWNLOAD.getPropertyInfix() + "RateLimitPerSecond",
+                    options.getOrDefault("imageDownloadRateLimit", "0"));
+            if (!cache) {
+                properties.setProperty(BiteBoardProperties.MENU_CACHE_MAX_ENTRIES, "0");
+            }
+            if (imageStore) {
+                final File directory = Files.createTempDirectory("bite-board-images").toFile();
+                directory.deleteOnExit();
+                properties.setProperty(BiteBoardProperties.IMAGE_STORE_DIRECTORY, directory.getPath());
+            }
+
+            final FetchExecutor fetchExecutor = FetchExecutor.fromProperties("menu-fetch");
+            final FetchExecutor imageExecutor = FetchExecutor.fromProperties("image-fetch");
+            final MenuItemsProviderManager menuProviders = new MenuItemsProviderManager(MenuItemsCache.fromProperties(), null, fetchExecutor);
+            final MenuItemsProvider mainProvider = legacy
+                    ? new LegacyHochschuleMannheimTagessichtMenuProvider(upstream.getBaseUrl())
+                    : new HochschuleMannheimTagessichtMenuProvider(upstream.getBaseUrl());
+            menuProviders.register(mainProvider);
+            for (int i = 1; i < locations; i++) {
+                menuProviders.register(new StwMaTagessichtMenuProvider(upstream.getBaseUrl(), String.valueOf(611 + i), "Canteen " + i,
+                        mainProvider.getDisplayMenuLink(), mainProvider.getProviderThumbnail()));
+            }
+            final List<MenuItemsProvider> providers = new ArrayList<>(menuProviders.values());
+            providers.sort(Comparator.comparing(MenuItemsProvider::getName));
+
+            final MenuCacheWarmer warmer = warm ? new MenuCacheWarmer(menuProviders, Collections.singletonList(LocalTime.MIDNIGHT), days, 1) : null;
+            if (warmer != null) {
+                warmer.warmNow();
+                System.out.println("Cache warmer:        " + warmer.describeStatistics());
+            }
+
+            final ImageSearcher.ImageSearch imageSearch = images ? ImageSearcher.createImageSearch(properties) : new ImageSearcher.DummyImageSearch();
+            final File botDataFile = new File(Files.createTempDirectory("bite-board-load-test").toFile(), "bot-data.json");
+            botDataFile.deleteOnExit();
+            botDataFile.getParentFile().deleteOnExit();
+            final BotData botData = new BotData(botDataFile);
+            final List<String> users = new ArrayList<>();
+            for (MenuItemsProvider provider : providers) {
+                final String user = "load-test-" + users.size();
+                botData.setUserPreferredMenuProvider(user, provider.getName());
+                users.add(user);
+            }
+            final MenuCommand menuCommand = new MenuCommand(menuProviders, imageSearch, botData, imageExecutor);
+
+            System.out.printf("Running %d menu commands (concurrency %d, %d days, latency %d+%dms, error rate %.2f, provider %s, %d locations, images %s, cache %s, %s threads)%n",
+                    commands, concurrency, days, latency, jitter, errorRate, legacy ? "legacy" : "api", locations, images, cache, fetchExecutor.getMode().name().toLowerCase());
+
+            final long[] firstReplyLatencies = new long[commands];
+            final long[] finalReplyLatencies = new long[commands];
+            final Map<SimulatedInteraction.Outcome, AtomicLong> outcomes = new EnumMap<>(SimulatedInteraction.Outcome.class);
+            for (SimulatedInteraction.Outcome outcome : SimulatedInteraction.Outcome.values()) {
+                outcomes.put(outcome, new AtomicLong());
+            }
+            final AtomicLong unfinished = new AtomicLong();
+
+            final Semaphore permits = new Semaphore(concurrency);
+            final CountDownLatch done = new CountDownLatch(commands);
+            // the menu and then the preview may each take up to the command deadline
+            final long finishDeadlineMillis = 2 * MenuCommand.getCommandDeadlineMillis() + 1000;
+            final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+            final long runStart = System.nanoTime();
+
+            for (int i = 0; i < commands; i++) {
+                permits.acquire();
+                final int index = i;
+                final String subcommand = DAY_SUBCOMMANDS.get(i % days);
+                final String user = users.get((i / days) % users.size());
+                final SimulatedInteraction interaction = new SimulatedInteraction(subcommand, user, images);
+
+                menuCommand.onSlashCommandInteraction(interaction.createEvent());
+
+                FutureUtils.withDeadline(interaction.getFinished(), finishDeadlineMillis, TimeUnit.MILLISECONDS)
+                        .whenComplete((outcome, error) -> {
+                            firstReplyLatencies[index] = interaction.getFirstReplyNanos();
+                            finalReplyLatencies[index] = interaction.getFinalReplyNanos();
+                            if (error == null) {
+                                outcomes.get(outcome).incrementAndGet();
+                            } else {
+                                unfinished.incrementAndGet();
+                            }
+                            permits.release();
+                            done.countDown();
+                        });
+            }
+
+            done.await();
+            final long runMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStart);
+
+            System.out.printf("Finished in %d ms (%.1f commands/s): menu=%d, noMenu=%d, timedOut=%d, rejected=%d, failed=%d, unfinished=%d%n",
+                    runMillis, commands * 1000.0 / Math.max(1, runMillis), outcomes.get(SimulatedInteraction.Outcome.MENU).get(),
+                    outcomes.get(SimulatedInteraction.Outcome.NO_MENU).get(), outcomes.get(SimulatedInteraction.Outcome.TIMED_OUT).get(),
+                    outcomes.get(SimulatedInteraction.Outcome.REJECTED).get(), outcomes.get(SimulatedInteraction.Outcome.FAILED).get(), unfinished.get());
+            System.out.println("First reply latency: " + describePercentiles(firstReplyLatencies));
+            if (images) {
+                System.out.println("Final reply latency: " + describePercentiles(finalReplyLatencies));
+            }
+            System.out.println("Upstream requests:   " + upstream.describeRequestCounts());
+            System.out.println("Menu cache:          " + menuProviders.getCache().describeStatistics());
+            System.out.println("Fetch coalescing:    " + menuProviders.getCoalescer().describeStatistics());
+            if (!legacy) {
+                System.out.println("Feature legends:     " + StwMaTagessichtMenuProvider.getFeatureLegends().describeStatistics());
+            }
+            if (imageSearch instanceof CachingImageSearch) {
+                System.out.println("Image search cache:  " + ((CachingImageSearch) imageSearch).describeStatistics());
+            }
+            if (ImageStore.getInstance() != null) {
+                System.out.println("Image store:         " + ImageStore.getInstance().describeStatistics());
+            }
+            System.out.println("HTTP resilience:     " + SiteFetcher.describeResilienceStatistics());
+            System.out.println("Menu executor:       " + fetchExecutor.describeStatistics());
+            System.out.println("Image executor:      " + imageExecutor.describeStatistics());
+            System.out.println("JVM threads:         peak=" + threads.getPeakThreadCount() + ", live=" + threads.getThreadCount() + ", started=" + threads.getTotalStartedThreadCount());
+
+            fetchExecutor.shutdown();
+            imageExecutor.shutdown();
+        }
+
+        // the OkHttp dispatcher threads would keep the JVM alive for another minute
+        System.exit(0);
+    }
+
+    private static String describePercentiles(long[] latenciesNanos) {
+        final long[] sorted = latenciesNanos.clone();
+        Arrays.sort(sorted);
+        return "p50=" + percentileMillis(sorted, 0.50) + "ms, p95=" + percentileMillis(sorted, 0.95) + "ms, p99=" + percentileMillis(sorted, 0.99) +
+               "ms, max=" + TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length - 1]) + "ms";
+    }
+
+    private static long percentileMillis(long[] sorted, double percentile) {
+        final int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+}
@@ -0,0 +1,146 @@
+package menu.loadtest;
+
+import lombok.extern.log4j.Log4j2;
+import menu.benchmark.Fixtures;
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import okio.Buffer;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the stw-ma API, the stw-ma website and the Google image page search, serving the fixture pages and
+ * generated images. Every response is delayed by the configured latency plus a random jitter, and fails with a
+ * <code>503</code> at the configured error rate.
+ */
+@Log4j2
+public class MockUpstreamServer implements AutoCloseable {
+
+    public static final String MENU_API_PATH = "/tl1/menuplan";
+    public static final String LEGACY_PAGE_PATH = "/Essen+_+Trinken/Speisepl%C3%A4ne/Hochschule+Mannheim.html";
+    public static final String IMAGE_SEARCH_PATH = "/search";
+    public static final String IMAGE_PATH = "/images/";
+
+    private static final int IMAGES_PER_SEARCH = 5;
+
+    private final MockWebServer server = new MockWebServer();
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+
+    private final byte[] menuApiDayResponse = Fixtures.load(Fixtures.API_DAY_RESPONSE);
+    private final byte[] menuApiWeekResponse = Fixtures.load(Fixtures.API_WEEK_RESPONSE);
+    private final byte[] legacyPage = Fixtures.load(Fixtures.LEGACY_DAY_PAGE);
+    private final byte[] image;
+
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicLong errorCount = new AtomicLong();
+
+    public MockUpstreamServer(long latencyMillis, long jitterMillis, double errorRate) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.image = createImage();
+
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+        server.start();
+        log.info("Mock upstream server listening on {}", getBaseUrl());
+    }
+
+    public String getBaseUrl() {
+        final String url = server.url("/").toString();
+        return url.substring(0, url.length() - 1);
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        final String path = request.getPath() == null ? "" : request.getPath();
+        final String route = route(path);
+        requestCounts.computeIfAbsent(route, key -> new AtomicLong()).incrementAndGet();
+
+        final MockResponse.Builder response = new MockResponse.Builder()
+                .headersDelay(latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0), TimeUnit.MILLISECONDS);
+
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            errorCount.incrementAndGet();
+            return response.code(503).body("Service Unavailable").build();
+        }
+
+        switch (route) {
+            case MENU_API_PATH:
+                final byte[] menuApiResponse = request.getBody().readUtf8().contains("mode=week") ? menuApiWeekResponse : menuApiDayResponse;
+                return response.addHeader("Content-Type", "application/json; charset=utf-8").body(new Buffer().write(menuApiResponse)).build();
+            case LEGACY_PAGE_PATH:
+                return response.addHeader("Content-Type", "text/html; charset=utf-8").body(new Buffer().write(legacyPage)).build();
+            case IMAGE_SEARCH_PATH:
+                return response.addHeader("Content-Type", "text/html; charset=utf-8").body(imageSearchPage()).build();
+            case IMAGE_PATH:
+                return response.addHeader("Content-Type", "image/png").body(new Buffer().write(image)).build();
+            default:
+                return response.code(404).body("Not Found").build();
+        }
+    }
+
+    private static String route(String path) {
+        if (path.startsWith(IMAGE_PATH)) {
+            return IMAGE_PATH;
+        }
+        final int query = path.indexOf('?');
+        return query == -1 ? path : path.substring(0, query);
+    }
+
+    private String imageSearchPage() {
+        final StringBuilder page = new StringBuilder("<html><body>");
+        for (int i = 0; i < IMAGES_PER_SEARCH; i++) {
+            page.append("<img src=\"").append(getBaseUrl()).append(IMAGE_PATH).append(ThreadLocalRandom.current().nextInt(1000)).append(".png\">");
+        }
+        return page.append("</body></html>").toString();
+    }
+
+    private static byte[] createImage() throws IOException {
+        final BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, 320, 240, Color.DARK_GRAY));
+        graphics.fillRect(0, 0, 320, 240);
+        graphics.dispose();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    public long getRequestCount(String route) {
+        final AtomicLong count = requestCounts.get(route);
+        return count == null ? 0 : count.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public String describeRequestCounts() {
+        return "menuApi=" + getRequestCount(MENU_API_PATH) + ", legacyPage=" + getRequestCount(LEGACY_PAGE_PATH) +
+               ", imageSearch=" + getRequestCount(IMAGE_SEARCH_PATH) + ", images=" + getRequestCount(IMAGE_PATH) +
+               ", injectedErrors=" + getErrorCount() + ", total=" + server.getRequestCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
@@ -0,0 +1,241 @@
+package menu.loadtest;
+
+import menu.bot.commands.MenuCommand;
+import menu.service.LanguageManager;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A <code>/menu</code> slash command that never reaches Discord. The {@link MenuCommand} handles it like any other event
+ * and answers through its {@link InteractionHook}, whose actions are stubs that record each reply and complete right
+ * away.
+ * <p>
+ * The command is finished with its final reply: the image preview if images are expected and the menu was sent,
+ * otherwise the first reply, e.g. the menu itself or an error message.
+ */
+class SimulatedInteraction {
+
+    private static final AtomicLong MESSAGE_IDS = new AtomicLong();
+
+    enum Outcome {
+        MENU, NO_MENU, TIMED_OUT, REJECTED, FAILED
+    }
+
+    private final String subcommand;
+    private final String user;
+    private final boolean expectImages;
+    private final long startNanos = System.nanoTime();
+
+    private volatile long firstReplyNanos;
+    private volatile long finalReplyNanos;
+    private final CompletableFuture<Outcome> finished = new CompletableFuture<>();
+
+    SimulatedInteraction(String subcommand, String user, boolean expectImages) {
+        this.subcommand = subcommand;
+        this.user = user;
+        this.expectImages = expectImages;
+    }
+
+    SlashCommandInteractionEvent createEvent() {
+        return new SlashCommandInteractionEvent(null, 0, stub(SlashCommandInteraction.class, this::interaction));
+    }
+
+    CompletableFuture<Outcome> getFinished() {
+        return finished;
+    }
+
+    /**
+     * @return the time from the start of the command to its first reply, or to now if there was none yet
+     */
+    long getFirstReplyNanos() {
+        return firstReplyNanos != 0 ? firstReplyNanos : System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return the time from the start of the command to its final reply, or to now if there was none yet
+     */
+    long getFinalReplyNanos() {
+        return finalReplyNanos != 0 ? finalReplyNanos : System.nanoTime() - startNanos;
+    }
+
+    private Object interaction(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getName":
+                return "menu";
+            case "getSubcommandName":
+                return subcommand;
+            case "getSubcommandGroup":
+            case "getGuild":
+            case "getOption":
+                return null;
+            case "getOptions":
+                return Collections.emptyList();
+            case "getUser":
+                return stub(User.class, (userProxy, userMethod, userArgs) -> named(userMethod, user));
+            case "getChannel":
+            case "getMessageChannel":
+                return stub(MessageChannelUnion.class, (channelProxy, channelMethod, channelArgs) -> named(channelMethod, "load-test"));
+            case "getHook":
+                return stub(InteractionHook.class, this::hook);
+            case "deferReply":
+                return action(method.getReturnType(), null);
+            default:
+                return unsupported(method);
+        }
+    }
+
+    private Object hook(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "sendMessage":
+                return action(method.getReturnType(), () -> onTextReply((String) args[0]));
+            case "editMessageById":
+                return action(method.getReturnType(), () -> onTextReply((String) args[1]));
+            case "sendMessageEmbeds":
+                return action(method.getReturnType(), () -> onEmbedReply(embeds(args, 0)));
+            case "editMessageEmbedsById":
+                return action(method.getReturnType(), () -> onEmbedReply(embeds(args, 1)));
+            default:
+                return unsupported(method);
+        }
+    }
+
+    private void onTextReply(String content) {
+        final LanguageManager language = LanguageManager.get();
+        if (content.equals(language.getTranslation("command.menu.response.timeout"))) {
+            onReply(true, Outcome.TIMED_OUT);
+        } else if (content.equals(language.getTranslation("command.menu.response.busy"))) {
+            onReply(true, Outcome.REJECTED);
+        } else if (content.equals(language.getTranslation("command.menu.response.error"))
+                   || content.equals(language.getTranslation("command.generic.errorExecutingCommand"))) {
+            onReply(true, Outcome.FAILED);
+        } else {
+            // no menu for the day, also when a stale menu is replaced by an empty one
+            onReply(true, Outcome.NO_MENU);
+        }
+    }
+
+    private void onEmbedReply(List<MessageEmbed> embeds) {
+        final boolean preview = embeds.stream().anyMatch(embed -> embed.getImage() != null);
+        onReply(preview || !expectImages, Outcome.MENU);
+    }
+
+    private void onReply(boolean last, Outcome outcome) {
+        final long elapsed = System.nanoTime() - startNanos;
+        if (firstReplyNanos == 0) {
+            firstReplyNanos = elapsed;
+        }
+        if (last && !finished.isDone()) {
+            finalReplyNanos = elapsed;
+            finished.complete(outcome);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<MessageEmbed> embeds(Object[] args, int index) {
+        if (args[index] instanceof Collection) {
+            return new ArrayList<>((Collection<MessageEmbed>) args[index]);
+        }
+        final List<MessageEmbed> embeds = new ArrayList<>();
+        embeds.add((MessageEmbed) args[index]);
+        if (args.length > index + 1 && args[index + 1] instanceof MessageEmbed[]) {
+            embeds.addAll(Arrays.asList((MessageEmbed[]) args[index + 1]));
+        }
+        return embeds;
+    }
+
+    /**
+     * Any rest action of the hook or a message: the builder methods return the action itself, <code>queue</code> and
+     * <code>submit</code> count as the reply (if any) and complete right away with a stub message.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object action(Class<?> type, Runnable reply) {
+        return stub(type, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "queue":
+                    if (reply != null) reply.run();
+                    if (args != null && args.length > 0 && args[0] != null) {
+                        ((Consumer<Object>) args[0]).accept(reply != null ? message() : null);
+                    }
+                    return null;
+                case "submit":
+                    if (reply != null) reply.run();
+                    return CompletableFuture.completedFuture(message());
+                case "complete":
+                    if (reply != null) reply.run();
+                    return message();
+                default:
+                    if (method.getReturnType().isInstance(proxy)) {
+                        return proxy;
+                    }
+                    return unsupported(method);
+            }
+        });
+    }
+
+    private static Message message() {
+        final long id = MESSAGE_IDS.incrementAndGet();
+        return stub(Message.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getIdLong":
+                    return id;
+                case "getId":
+                    return String.valueOf(id);
+                case "addReaction":
+                case "clearReactions":
+                case "removeReaction":
+                    return action(method.getReturnType(), null);
+                default:
+                    return unsupported(method);
+            }
+        });
+    }
+
+    private static Object named(Method method, String name) {
+        switch (method.getName()) {
+            case "getName":
+            case "getEffectiveName":
+            case "getId":
+                return name;
+            default:
+                return unsupported(method);
+        }
+    }
+
+    private static Object unsupported(Method method) {
+        throw new UnsupportedOperationException("Not simulated: " + method.getDeclaringClass().getSimpleName() + "." + method.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(SimulatedInteraction.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return type.getSimpleName() + "@stub";
+                }
+            }
+            return handler.invoke(proxy, method, args);
+        });
+    }
+}
@@ -2,11 +2,19 @@ package menu.bot;
 
 import lombok.extern.log4j.Log4j2;
 import menu.bot.commands.MenuCommand;
+import menu.providers.MenuCacheWarmer;
+import menu.providers.MenuHistoryStore;
+import menu.providers.MenuItemsCache;
 import menu.providers.MenuItemsProvider;
 import menu.providers.MenuItemsProviderManager;
 import menu.service.ApplicationStateLogger;
+import menu.service.CachingImageSearch;
+import menu.service.FetchExecutor;
 import menu.service.ImageSearcher;
+import menu.service.ImageStore;
 import menu.service.LanguageManager;
+import menu.service.SiteFetcher;
+import menu.service.VirtualThreads;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.utils.ChunkingFilter;
@@ -18,7 +26,10 @@ import java.util.List;
 public class BiteBoardBot {
 
     private final ImageSearcher.ImageSearch imageSearch;
-    private final MenuItemsProviderManager menuProviders = new MenuItemsProviderManager();
+    private final FetchExecutor fetchExecutor;
+    private final FetchExecutor imageExecutor;
+    private final MenuItemsProviderManager menuProviders;
+    private final MenuCacheWarmer menuCacheWarmer;
     private final BotData botData;
     private final MenuCommand menuCommand;
     private final JDA jda;
@@ -31,10 +42,18 @@ public class BiteBoardBot {
         LanguageManager.get().setLang(BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.LANGUAGE));
 
         ApplicationStateLogger.logStartupSetupMenuProviders(providers);
+        this.fetchExecutor = FetchExecutor.fromProperties("menu-fetch");
+        this.imageExecutor = FetchExecutor.fromProperties("image-fetch");
+        ApplicationStateLogger.logApplicationStartupStepMessageFollowup("Using " + fetchExecutor.getMode().name().toLowerCase() + " threads for fetching");
+        this.menuProviders = new MenuItemsProviderManager(MenuItemsCache.fromProperties(), MenuHistoryStore.fromProperties(), fetchExecutor);
         for (MenuItemsProvider provider : providers) {
             menuProviders.register(provider);
             ApplicationStateLogger.logApplicationStartupStepMessageFollowup(provider.getName() + " as " + provider.getClass().getSimpleName() + " (" + provider.getDisplayMenuLink() + ")");
         }
+        this.menuCacheWarmer = MenuCacheWarmer.fromProperties(menuProviders);
+        if (menuCacheWarmer != null) {
+            menuCacheWarmer.start();
+        }
 
         ApplicationStateLogger.logStartupSetupImageSearch(BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.MENSA_MENU_IMAGE_PREVIEW_SERVICE));
         this.imageSearch = ImageSearcher.createImageSearch(BiteBoardProperties.getProperties());
@@ -48,19 +67,23 @@ public class BiteBoardBot {
             throw new RuntimeException("Error parsing bot data from file: " + e.getMessage());
         }
 
-        this.menuCommand = new MenuCommand(menuProviders, imageSearch, botData);
+        this.menuCommand = new MenuCommand(menuProviders, imageSearch, botData, imageExecutor);
 
         ApplicationStateLogger.logStartupSetupDiscordBot();
-        this.jda = JDABuilder.createDefault(BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.DISCORD_BOT_TOKEN))
+        final JDABuilder jdaBuilder = JDABuilder.createDefault(BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.DISCORD_BOT_TOKEN))
                 .setChunkingFilter(ChunkingFilter.ALL)
-                .addEventListeners(menuCommand)
-                .build();
+                .addEventListeners(menuCommand);
+        if (fetchExecutor.getMode() == VirtualThreads.ExecutionMode.VIRTUAL) {
+            // handle every interaction on its own virtual thread, JDA shuts the pool down together with itself
+            jdaBuilder.setEventPool(VirtualThreads.newVirtualThreadPerTaskExecutor(), true);
+        }
+        this.jda = jdaBuilder.build();
 
         this.jda.awaitReady()
                 .updateCommands().addCommands(menuCommand.getCommandData())
                 .queue();
 
-        this.scheduledQueryExecutor = new ScheduledQueryExecutor(jda, menuCommand, imageSearch, menuProviders);
+        this.scheduledQueryExecutor = new ScheduledQueryExecutor(jda, menuCommand, imageSearch, menuProviders, imageExecutor);
         scheduledQueryExecutor.scheduleAll(this.botData.getAllPeriodicMenuChannels());
 
         Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
@@ -78,6 +101,27 @@ public class BiteBoardBot {
     public void shutdown() {
         scheduledQueryExecutor.shutdown();
         jda.shutdown();
+        if (menuCacheWarmer != null) {
+            menuCacheWarmer.shutdown();
+            log.info("Menu cache warmer statistics: {}", menuCacheWarmer.describeStatistics());
+        }
+        fetchExecutor.shutdown();
+        imageExecutor.shutdown();
+        log.info("Menu cache statistics: {}", menuProviders.getCache().describeStatistics());
+        log.info("Menu fetch statistics: {}", menuProviders.getCoalescer().describeStatistics());
+        if (menuProviders.getHistoryStore() != null) {
+            log.info("Menu history statistics: {}", menuProviders.getHistoryStore().describeStatistics());
+            menuProviders.getHistoryStore().close();
+        }
+        if (imageSearch instanceof CachingImageSearch) {
+            log.info("Image search cache statistics: {}", ((CachingImageSearch) imageSearch).describeStatistics());
+            ((CachingImageSearch) imageSearch).close();
+        }
+        if (ImageStore.getInstance() != null) {
+            log.info("Image store statistics: {}", ImageStore.getInstance().describeStatistics());
+        }
+        log.info("HTTP cache statistics: {}", SiteFetcher.getCacheStatistics().describe());
+        log.info("HTTP retry and circuit statistics: {}", SiteFetcher.describeResilienceStatistics());
         log.info("BiteBoardBot shutdown completed.");
     }
 }
@@ -1,20 +1,28 @@
 package menu.bot;
 
 import lombok.extern.log4j.Log4j2;
+import menu.providers.MenuItemsProvider;
 import menu.providers.implementations.HochschuleMannheimTagessichtMenuProvider;
 import menu.providers.implementations.LegacyHochschuleMannheimTagessichtMenuProvider;
+import menu.providers.implementations.StwMaTagessichtMenuProvider;
 import menu.service.ApplicationStateLogger;
 
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 @Log4j2
 public class BiteBoardBotEntrypoint {
     public static void main(String[] args) throws InterruptedException {
         ApplicationStateLogger.logApplicationSplashScreen();
 
-        new BiteBoardBot(Arrays.asList(
-                // new LegacyHochschuleMannheimTagessichtMenuProvider(),
-                new HochschuleMannheimTagessichtMenuProvider()
-        ));
+        List<MenuItemsProvider> providers = StwMaTagessichtMenuProvider.fromProperties();
+        if (providers.isEmpty()) {
+            providers = Collections.singletonList(
+                    // new LegacyHochschuleMannheimTagessichtMenuProvider()
+                    new HochschuleMannheimTagessichtMenuProvider()
+            );
+        }
+
+        new BiteBoardBot(providers);
     }
 }
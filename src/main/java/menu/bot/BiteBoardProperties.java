@@ -27,6 +27,64 @@ public class BiteBoardProperties {
     public static final String MENU_VOTING_ON_USER_REQUEST = "menuVotingOnUserRequest";
     public static final String MENU_VOTING_ON_SCHEDULED_REQUEST = "menuVotingOnScheduledRequest";
 
+    public static final String MENU_CACHE_TODAY_TTL_SECONDS = "menuCacheTodayTtlSeconds";
+    public static final String MENU_CACHE_FUTURE_TTL_SECONDS = "menuCacheFutureTtlSeconds";
+    public static final String MENU_CACHE_MAX_ENTRIES = "menuCacheMaxEntries";
+    public static final String MENU_CACHE_EMPTY_TTL_SECONDS = "menuCacheEmptyTtlSeconds";
+    public static final String MENU_CLOSED_WEEKDAYS = "menuClosedWeekdays";
+    public static final String MENU_CLOSED_DATES = "menuClosedDates";
+    public static final String MENU_WARMER_TIMES = "menuWarmerTimes";
+    public static final String MENU_WARMER_DAYS = "menuWarmerDays";
+    public static final String MENU_WARMER_CONCURRENCY = "menuWarmerConcurrency";
+    public static final String MENU_STALE_WHILE_REVALIDATE = "menuStaleWhileRevalidate";
+    public static final String MENU_STALE_MAX_AGE_HOURS = "menuStaleMaxAgeHours";
+
+    public static final String FETCH_EXECUTOR_THREADS = "fetchExecutorThreads";
+    public static final String FETCH_EXECUTOR_QUEUE_CAPACITY = "fetchExecutorQueueCapacity";
+
+    public static final String MENU_COMMAND_DEADLINE_SECONDS = "menuCommandDeadlineSeconds";
+
+    public static final String EXECUTION_MODE = "executionMode";
+
+    public static final String HTTP_MAX_REQUESTS = "httpMaxRequests";
+    public static final String HTTP_MAX_REQUESTS_PER_HOST = "httpMaxRequestsPerHost";
+    public static final String HTTP_MAX_IDLE_CONNECTIONS = "httpMaxIdleConnections";
+    public static final String HTTP_CALL_TIMEOUT_SECONDS = "httpCallTimeoutSeconds";
+    public static final String HTTP_MAX_RESPONSE_BYTES = "httpMaxResponseBytes";
+    public static final String HTTP_MAX_RETRIES = "httpMaxRetries";
+    public static final String HTTP_RETRY_BASE_DELAY_MILLIS = "httpRetryBaseDelayMillis";
+    public static final String HTTP_RETRY_MAX_DELAY_MILLIS = "httpRetryMaxDelayMillis";
+    public static final String HTTP_CIRCUIT_FAILURE_THRESHOLD = "httpCircuitFailureThreshold";
+    public static final String HTTP_CIRCUIT_OPEN_SECONDS = "httpCircuitOpenSeconds";
+    public static final String HTTP_RATE_LIMIT_PER_SECOND = "httpRateLimitPerSecond";
+    public static final String HTTP_RATE_LIMIT_BURST = "httpRateLimitBurst";
+    public static final String HTTP_RATE_LIMIT_MAX_WAIT_MILLIS = "httpRateLimitMaxWaitMillis";
+
+    public static final String HTTP_CACHE_DIRECTORY = "httpCacheDirectory";
+    public static final String HTTP_CACHE_MAX_SIZE_MB = "httpCacheMaxSizeMb";
+
+    public static final String MENU_HISTORY_FILE = "menuHistoryFile";
+    public static final String MENU_HISTORY_RETENTION_DAYS = "menuHistoryRetentionDays";
+
+    public static final String IMAGE_SEARCH_CACHE_FILE = "imageSearchCacheFile";
+    public static final String IMAGE_SEARCH_CACHE_TTL_HOURS = "imageSearchCacheTtlHours";
+    public static final String IMAGE_SEARCH_CACHE_MAX_ENTRIES = "imageSearchCacheMaxEntries";
+
+    public static final String IMAGE_LOAD_TIMEOUT_MILLIS = "imageLoadTimeoutMillis";
+    public static final String IMAGE_COMPOSITE_DEADLINE_MILLIS = "imageCompositeDeadlineMillis";
+    public static final String IMAGE_MAX_PIXELS = "imageMaxPixels";
+
+    public static final String IMAGE_STORE_DIRECTORY = "imageStoreDirectory";
+    public static final String IMAGE_STORE_MAX_SIZE_MB = "imageStoreMaxSizeMb";
+
+    public static final String STW_MA_LOCATIONS = "stwMaLocations";
+    public static final String STW_MA_LOCATION_PREFIX = "stwMaLocation.";
+
+    public static final String STW_MA_API_BASE_URL = "stwMaApiBaseUrl";
+    public static final String STW_MA_WEBSITE_BASE_URL = "stwMaWebsiteBaseUrl";
+    public static final String GOOGLE_IMAGE_PAGE_BASE_URL = "googleImagePageBaseUrl";
+    public static final String GOOGLE_IMAGE_API_BASE_URL = "googleImageApiBaseUrl";
+
     public static Properties getProperties() {
         if (properties == null) {
             try {
@@ -38,6 +96,32 @@ public class BiteBoardProperties {
         return properties;
     }
 
+    public static long getLongProperty(String key, long defaultValue) {
+        final String value = getProperties().getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            log.error("Invalid number for property [{}]: {}, using default {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static int getIntProperty(String key, int defaultValue) {
+        return (int) getLongProperty(key, defaultValue);
+    }
+
+    /**
+     * @return the configured base URL without a trailing slash, or the default if none is configured.
+     */
+    public static String getBaseUrlProperty(String key, String defaultValue) {
+        final String value = getProperties().getProperty(key, "").trim();
+        final String url = value.isEmpty() ? defaultValue : value;
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
     private static synchronized void loadProperties() throws IOException {
         properties = new Properties();
 
@@ -7,6 +7,7 @@ import menu.providers.MenuItemsProvider;
 import menu.providers.MenuItemsProviderManager;
 import menu.providers.MenuTime;
 import menu.service.ApplicationStateLogger;
+import menu.service.FutureUtils;
 import menu.service.ImageSearcher;
 import menu.service.LanguageManager;
 import menu.service.TimeUtils;
@@ -32,9 +33,11 @@ public class ScheduledQueryExecutor {
     private final MenuCommand menuCommand;
     private final JDA jda;
     private final MenuItemsProviderManager menuProviders;
+    private final Executor imageExecutor;
 
-    public ScheduledQueryExecutor(JDA jda, MenuCommand menuCommand, ImageSearcher.ImageSearch imageSearch, MenuItemsProviderManager menuProviders) {
+    public ScheduledQueryExecutor(JDA jda, MenuCommand menuCommand, ImageSearcher.ImageSearch imageSearch, MenuItemsProviderManager menuProviders, Executor imageExecutor) {
         this.imageSearch = imageSearch;
+        this.imageExecutor = imageExecutor;
         this.menuCommand = menuCommand;
         this.jda = jda;
         this.menuProviders = menuProviders;
@@ -124,7 +127,10 @@ public class ScheduledQueryExecutor {
         final Instant queryTime = zdt.toInstant();
 
         final MenuTime menuTime = new MenuTime(zdt.getYear(), zdt.getMonthValue(), zdt.getDayOfMonth());
-        MenuCommand.ConstructedMenuEmbed menuEmbed = menuCommand.constructMenuEmbed(provider, new MenuCommand.MenuCommandData("Menu", Date.from(queryTime), menuTime));
+        final MenuCommand.ConstructedMenuEmbed menuEmbed = FutureUtils.withDeadline(
+                menuCommand.constructMenuEmbed(provider, new MenuCommand.MenuCommandData("Menu", Date.from(queryTime), menuTime)),
+                MenuCommand.getCommandDeadlineMillis(), TimeUnit.MILLISECONDS
+        ).get();
 
         if (menuEmbed.getMenuItems().isEmpty()) {
             channel.sendMessage(LanguageManager.get().fillTranslation("command.settingsmenu.response.periodicMenu.noMenuForToday", provider.toMdString(), TimeUtils.formatDay(zdt))).queue();
@@ -139,13 +145,17 @@ public class ScheduledQueryExecutor {
 
         final List<MenuItem> menuItems = menuEmbed.getMenuItems();
 
-        final List<MenuCommand.ConstructedMenuImageEmbed> imageEmbeds = MenuCommand.constructImageEmbed(imageSearch, menuItems);
+        final List<MenuCommand.ConstructedMenuImageEmbed> imageEmbeds = FutureUtils.withDeadline(
+                MenuCommand.constructImageEmbed(imageSearch, menuItems, imageExecutor),
+                MenuCommand.getCommandDeadlineMillis(), TimeUnit.MILLISECONDS
+        ).get();
         if (!imageEmbeds.isEmpty()) {
             log.info("Posting [{}] image embeds for channel [{}] on [{}]", imageEmbeds.size(), channel.getId(), queryTime.toString());
             for (MenuCommand.ConstructedMenuImageEmbed imageEmbed : imageEmbeds) {
                 final MessageCreateAction action = channel.sendMessageEmbeds(imageEmbed.getImageEmbed());
-                if (imageEmbed.getImageFile() != null) {
-                    action.addFiles(FileUpload.fromData(imageEmbed.getImageFile()));
+                final FileUpload imageUpload = imageEmbed.createImageUpload();
+                if (imageUpload != null) {
+                    action.addFiles(imageUpload);
                 }
                 action.queue();
             }
@@ -18,35 +18,40 @@ import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.dv8tion.jda.api.interactions.commands.build.SubcommandData;
+import net.dv8tion.jda.api.requests.RestAction;
 import net.dv8tion.jda.api.requests.restaction.WebhookMessageCreateAction;
 import net.dv8tion.jda.api.utils.FileUpload;
 import net.dv8tion.jda.internal.interactions.CommandDataImpl;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Log4j2
 public class MenuCommand extends ListenerAdapter {
 
     private final static List<String> MENU_FETCH_SUBCOMMANDS = Arrays.asList("today", "tomorrow", "overmorrow", "monday", "tuesday", "wednesday", "thursday", "friday");
+    private final static List<String> MENU_FETCH_WEEKDAY_SUBCOMMANDS = Arrays.asList("monday", "tuesday", "wednesday", "thursday", "friday");
 
     private final MenuItemsProviderManager menuProviders;
     private final ImageSearcher.ImageSearch imageSearch;
     private final BotData botData;
+    private final Executor imageExecutor;
 
-    public MenuCommand(MenuItemsProviderManager menuProviders, ImageSearcher.ImageSearch imageSearch, BotData botData) {
+    public MenuCommand(MenuItemsProviderManager menuProviders, ImageSearcher.ImageSearch imageSearch, BotData botData, Executor imageExecutor) {
         this.menuProviders = menuProviders;
         this.imageSearch = imageSearch;
         this.botData = botData;
+        this.imageExecutor = imageExecutor;
     }
 
     public CommandData getCommandData() {
@@ -259,45 +264,221 @@ public class MenuCommand extends ListenerAdapter {
         log.info("Fetching menu for user [{}] using provider [{}] with subcommand [{}]", user, menuProvider.getName(), subcommandName);
 
         final MenuCommandData menuCommandData = parseFetchMenuCommand(event);
-        final ConstructedMenuEmbed menuEmbedResult;
-        try {
-            menuEmbedResult = constructMenuEmbed(menuProvider, menuCommandData);
-        } catch (ExecutionException | InterruptedException e) {
-            log.error("Error fetching menu for user [{}] using provider [{}] with subcommand [{}]", user, menuProvider.getName(), subcommandName, e);
-            event.getHook().sendMessage(LanguageManager.get().getTranslation("command.menu.response.error")).queue();
+        final long deadlineMillis = getCommandDeadlineMillis();
+
+        final MenuItemsCache.MenuCacheEntry staleMenu = findStaleMenu(menuProvider, menuCommandData.getMenuTime());
+        if (staleMenu != null) {
+            log.info("Answering user [{}] with the last known menu of [{}] from {} ago while refreshing it", user, menuProvider.getName(), TimeUtils.formatAge(staleMenu.getCreatedAt()));
+            sendStaleMenuAndRevalidate(event, menuProvider, menuCommandData, staleMenu, deadlineMillis);
             return;
         }
 
-        if (menuEmbedResult.getMenuItems().isEmpty()) {
-            event.getHook().sendMessage(LanguageManager.get().fillTranslation("command.settingsmenu.response.periodicMenu.noMenuForToday", menuProvider.toMdString(), TimeUtils.formatDay(menuCommandData.getTargetDate()))).queue();
-            log.info("No menu found for user [{}] using provider [{}] with subcommand [{}]", user, menuProvider.getName(), subcommandName);
-            return;
+        // nothing in here may block, the event thread has to be free again right after deferring the reply
+        FutureUtils.withDeadline(constructMenuEmbed(menuProvider, menuCommandData), deadlineMillis, TimeUnit.MILLISECONDS)
+                .thenCompose(menuEmbedResult -> {
+                    if (menuEmbedResult.getMenuItems().isEmpty()) {
+                        log.info("No menu found for user [{}] using provider [{}] with subcommand [{}]", user, menuProvider.getName(), subcommandName);
+                        return event.getHook().sendMessage(LanguageManager.get().fillTranslation("command.settingsmenu.response.periodicMenu.noMenuForToday", menuProvider.toMdString(), TimeUtils.formatDay(menuCommandData.getTargetDate())))
+                                .submit()
+                                .thenApply(message -> (ConstructedMenuEmbed) null);
+                    }
+
+                    final CompletableFuture<Message> sent = event.getHook().sendMessageEmbeds(menuEmbedResult.getMenuEmbed()).submit();
+                    // the reactions are a side branch, failing to attach them must not turn the sent menu into a fetch error
+                    sent.thenAccept(message -> attachReactions(menuProvider, menuEmbedResult.getMenuItems(), message, BiteBoardProperties.MENU_VOTING_ON_USER_REQUEST));
+                    return sent.thenApply(message -> menuEmbedResult);
+                })
+                .whenComplete((menuEmbedResult, error) -> {
+                    if (error != null) {
+                        log.error("Error fetching menu for user [{}] using provider [{}] with subcommand [{}]", user, menuProvider.getName(), subcommandName, FutureUtils.unwrap(error));
+                        final MenuItemsCache.MenuCacheEntry fallbackMenu = findFallbackMenu(menuProvider, menuCommandData.getMenuTime());
+                        if (fallbackMenu != null) {
+                            log.info("Answering user [{}] with the last known menu of [{}] from {} ago instead", user, menuProvider.getName(), TimeUtils.formatAge(fallbackMenu.getCreatedAt()));
+                            sendLastKnownMenu(event, menuProvider, menuCommandData, fallbackMenu, "command.menu.response.menu.fallback", true, deadlineMillis);
+                        } else {
+                            event.getHook().sendMessage(LanguageManager.get().getTranslation(menuFetchErrorTranslationKey(error))).queue();
+                        }
+                    } else if (menuEmbedResult != null) {
+                        sendImageEmbeds(event, menuEmbedResult.getMenuItems(), deadlineMillis);
+                    }
+                });
+    }
+
+    /**
+     * @return the last known menu if serving stale menus is enabled and the menu would have to be fetched again, but is
+     * not older than the maximum stale age, otherwise <code>null</code>.
+     */
+    private static MenuItemsCache.MenuCacheEntry findStaleMenu(MenuItemsProvider menuProvider, MenuTime date) {
+        final MenuItemsCache.MenuCacheEntry lastKnown = findFallbackMenu(menuProvider, date);
+        if (lastKnown == null || ((CachingMenuItemsProvider) menuProvider).isFresh(date, lastKnown.getCreatedAt())) {
+            return null;
         }
+        return lastKnown;
+    }
 
-        final WebhookMessageCreateAction<Message> messageAction = event.getHook().sendMessageEmbeds(menuEmbedResult.getMenuEmbed());
-        final Message message = messageAction.complete();
-        attachReactions(menuProvider, menuEmbedResult.getMenuItems(), message, BiteBoardProperties.MENU_VOTING_ON_USER_REQUEST);
+    /**
+     * @return the last known menu if serving stale menus is enabled and there is a non-empty one within the maximum
+     * stale age, otherwise <code>null</code>.
+     */
+    private static MenuItemsCache.MenuCacheEntry findFallbackMenu(MenuItemsProvider menuProvider, MenuTime date) {
+        if (!"true".equals(BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.MENU_STALE_WHILE_REVALIDATE))
+            || !(menuProvider instanceof CachingMenuItemsProvider)) {
+            return null;
+        }
+        final MenuItemsCache.MenuCacheEntry lastKnown = ((CachingMenuItemsProvider) menuProvider).getLastKnownMenuItems(date);
+        if (lastKnown == null || lastKnown.getMenuItems().isEmpty()) {
+            return null;
+        }
+        final long maxAgeMillis = TimeUnit.HOURS.toMillis(BiteBoardProperties.getLongProperty(BiteBoardProperties.MENU_STALE_MAX_AGE_HOURS, 168));
+        if (System.currentTimeMillis() - lastKnown.getCreatedAt() > maxAgeMillis) {
+            return null;
+        }
+        return lastKnown;
+    }
 
-        final List<ConstructedMenuImageEmbed> imageEmbeds = constructImageEmbed(imageSearch, menuEmbedResult.getMenuItems());
-        for (ConstructedMenuImageEmbed imageEmbed : imageEmbeds) {
-            final WebhookMessageCreateAction<Message> action = event.getHook().sendMessageEmbeds(imageEmbed.getImageEmbed());
-            if (imageEmbed.getImageFile() != null) {
-                action.addFiles(FileUpload.fromData(imageEmbed.getImageFile()));
+    /**
+     * Answers with the last known menu right away and fetches the current one in the background. The refresh goes
+     * through the same cache and in-flight fetches as any other command, so a struggling provider sees at most one
+     * request per day no matter how many users ask. If the refreshed menu differs, the message is edited.<br>
+     * The image previews are only sent once the refresh is done, for the menu that is shown by then, so that an edited
+     * message is never followed by the previews of the outdated menu.
+     */
+    private void sendStaleMenuAndRevalidate(SlashCommandInteractionEvent event, MenuItemsProvider menuProvider, MenuCommandData menuCommandData,
+                                            MenuItemsCache.MenuCacheEntry staleMenu, long deadlineMillis) {
+        final CompletableFuture<ConstructedMenuEmbed> refresh = FutureUtils.withDeadline(constructMenuEmbed(menuProvider, menuCommandData), deadlineMillis, TimeUnit.MILLISECONDS);
+        final CompletableFuture<Message> sent = sendLastKnownMenu(event, menuProvider, menuCommandData, staleMenu, "command.menu.response.menu.cached", false, deadlineMillis);
+
+        refresh.whenComplete((refreshed, error) -> sent.thenAccept(message -> {
+            if (error != null) {
+                log.warn("Could not refresh the menu of [{}] for {}, keeping the last known one: {}", menuProvider.getName(), menuCommandData.getMenuTime(), FutureUtils.unwrap(error).toString());
+                sendImageEmbeds(event, staleMenu.getMenuItems(), deadlineMillis);
+                return;
+            }
+            if (refreshed.getMenuItems().equals(staleMenu.getMenuItems())) {
+                log.info("Refreshed menu of [{}] for {} is unchanged", menuProvider.getName(), menuCommandData.getMenuTime());
+                sendImageEmbeds(event, staleMenu.getMenuItems(), deadlineMillis);
+                return;
             }
-            action.queue();
+
+            log.info("Refreshed menu of [{}] for {} has changed, updating message [{}]", menuProvider.getName(), menuCommandData.getMenuTime(), message.getId());
+            if (refreshed.getMenuItems().isEmpty()) {
+                event.getHook().editMessageById(message.getIdLong(), LanguageManager.get().fillTranslation("command.settingsmenu.response.periodicMenu.noMenuForToday", menuProvider.toMdString(), TimeUtils.formatDay(menuCommandData.getTargetDate())))
+                        .setEmbeds(Collections.emptyList())
+                        .queue();
+            } else {
+                event.getHook().editMessageEmbedsById(message.getIdLong(), refreshed.getMenuEmbed()).queue();
+                sendImageEmbeds(event, refreshed.getMenuItems(), deadlineMillis);
+            }
+            replaceReactions(menuProvider, staleMenu.getMenuItems(), refreshed.getMenuItems(), message);
+        }));
+    }
+
+    /**
+     * Replaces the voting reactions of the stale menu by the ones of the refreshed menu. Clearing all reactions needs
+     * the permission to manage messages, without it only the reactions of the bot itself are removed.
+     */
+    private void replaceReactions(MenuItemsProvider menuProvider, List<MenuItem> staleItems, List<MenuItem> menuItems, Message message) {
+        if (!"true".equals(BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.MENU_VOTING_ON_USER_REQUEST))) {
+            return;
         }
+        final Runnable attachNewReactions = () -> attachReactions(menuProvider, menuItems, message, BiteBoardProperties.MENU_VOTING_ON_USER_REQUEST);
+
+        message.clearReactions().queue(cleared -> attachNewReactions.run(), clearError -> {
+            log.warn("Could not clear the reactions of message [{}], removing only the own ones: {}", message.getId(), clearError.getMessage());
+            final List<String> staleEmojis = menuProvider.getMenuEmojis(staleItems);
+            final List<RestAction<Void>> removals = new ArrayList<>();
+            for (int i = 0; i < staleItems.size() && i < staleEmojis.size(); i++) {
+                removals.add(message.removeReaction(Emoji.fromUnicode(staleEmojis.get(i))));
+            }
+            if (removals.isEmpty()) {
+                attachNewReactions.run();
+                return;
+            }
+            RestAction.allOf(removals).queue(removed -> attachNewReactions.run(), removeError -> {
+                log.warn("Could not remove the reactions of message [{}]: {}", message.getId(), removeError.getMessage());
+                attachNewReactions.run();
+            });
+        });
     }
 
+    private CompletableFuture<Message> sendLastKnownMenu(SlashCommandInteractionEvent event, MenuItemsProvider menuProvider, MenuCommandData menuCommandData,
+                                                        MenuItemsCache.MenuCacheEntry lastKnown, String noticeKey, boolean withImages, long deadlineMillis) {
+        final String notice = LanguageManager.get().fillTranslation(noticeKey, TimeUtils.formatAge(lastKnown.getCreatedAt()));
+        final ConstructedMenuEmbed menuEmbedResult = renderMenuEmbed(menuProvider, menuCommandData, lastKnown.getMenuItems(), notice, lastKnown.getCreatedAt());
+
+        return event.getHook().sendMessageEmbeds(menuEmbedResult.getMenuEmbed())
+                .submit()
+                .whenComplete((message, error) -> {
+                    if (error != null) {
+                        log.error("Failed to send the last known menu of [{}]", menuProvider.getName(), error);
+                        return;
+                    }
+                    attachReactions(menuProvider, menuEmbedResult.getMenuItems(), message, BiteBoardProperties.MENU_VOTING_ON_USER_REQUEST);
+                    if (withImages) {
+                        sendImageEmbeds(event, menuEmbedResult.getMenuItems(), deadlineMillis);
+                    }
+                });
+    }
+
+    private void sendImageEmbeds(SlashCommandInteractionEvent event, List<MenuItem> menuItems, long deadlineMillis) {
+        final CompletableFuture<List<ConstructedMenuImageEmbed>> imageEmbedsFuture;
+        try {
+            imageEmbedsFuture = constructImageEmbed(imageSearch, menuItems, imageExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Skipping image embeds, image executor is saturated");
+            return;
+        }
+
+        FutureUtils.withDeadline(imageEmbedsFuture, deadlineMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((imageEmbeds, error) -> {
+                    if (error != null) {
+                        log.error("Failed to construct image embeds: {}", FutureUtils.unwrap(error).getMessage());
+                        return;
+                    }
+                    for (ConstructedMenuImageEmbed imageEmbed : imageEmbeds) {
+                        final WebhookMessageCreateAction<Message> action = event.getHook().sendMessageEmbeds(imageEmbed.getImageEmbed());
+                        final FileUpload imageUpload = imageEmbed.createImageUpload();
+                        if (imageUpload != null) {
+                            action.addFiles(imageUpload);
+                        }
+                        action.queue();
+                    }
+                });
+    }
+
+    private static String menuFetchErrorTranslationKey(Throwable error) {
+        if (FutureUtils.isTimeout(error)) {
+            return "command.menu.response.timeout";
+        } else if (FetchExecutor.isRejection(error)) {
+            return "command.menu.response.busy";
+        }
+        return "command.menu.response.error";
+    }
+
+    public static long getCommandDeadlineMillis() {
+        return TimeUnit.SECONDS.toMillis(BiteBoardProperties.getLongProperty(BiteBoardProperties.MENU_COMMAND_DEADLINE_SECONDS, 20));
+    }
+
+    /**
+     * Attaches the voting reactions to a sent menu. Failures, e.g. missing permissions, are only logged, the menu itself
+     * has been sent already.
+     */
     public void attachReactions(MenuItemsProvider provider, List<MenuItem> menuItems, Message message, String propertyKey) {
         if ("true".equals(BiteBoardProperties.getProperties().getProperty(propertyKey))) {
-            final List<String> menuEmojis = provider.getMenuEmojis(menuItems);
             int attachmentCount = 0;
-            for (int i = 0; i < menuItems.size(); i++) {
-                if (i >= menuEmojis.size()) {
-                    break;
+            try {
+                final List<String> menuEmojis = provider.getMenuEmojis(menuItems);
+                for (int i = 0; i < menuItems.size(); i++) {
+                    if (i >= menuEmojis.size()) {
+                        break;
+                    }
+                    message.addReaction(Emoji.fromUnicode(menuEmojis.get(i)))
+                            .queue(null, error -> log.warn("Failed to attach a reaction to message [{}]: {}", message.getId(), error.getMessage()));
+                    attachmentCount++;
                 }
-                attachmentCount++;
-                message.addReaction(Emoji.fromUnicode(menuEmojis.get(i))).queue();
+            } catch (RuntimeException e) {
+                log.warn("Failed to attach reactions to message [{}] after [{}] of them", message.getId(), attachmentCount, e);
+                return;
             }
 
             log.info("Attached [{}] reactions to message [{}]", attachmentCount, message.getId());
@@ -311,6 +492,12 @@ public class MenuCommand extends ListenerAdapter {
         private final String embedTitle;
         private final Date targetDate;
         private final MenuTime menuTime;
+        /**
+         * Optional range of days around the target date that should be fetched together with it, so that following
+         * queries for these days can be answered from the menu cache.
+         */
+        private MenuTime prefetchFrom;
+        private MenuTime prefetchTo;
     }
 
     @Data
@@ -319,20 +506,54 @@ public class MenuCommand extends ListenerAdapter {
         private final List<MenuItem> menuItems;
     }
 
+    /**
+     * The image embed and, for a combined preview, the encoded image it references as an attachment. Every preview has
+     * its own attachment name, so that concurrent posts cannot mix up their images.
+     */
     @Data
     public static class ConstructedMenuImageEmbed {
         private final MessageEmbed imageEmbed;
-        private final File imageFile;
+        private final byte[] imageData;
+        private final String imageFileName;
+
+        /**
+         * @return the upload for the image, or <code>null</code> if the embed has no attachment
+         */
+        public FileUpload createImageUpload() {
+            return imageData != null ? FileUpload.fromData(imageData, imageFileName) : null;
+        }
+    }
+
+    public CompletableFuture<ConstructedMenuEmbed> constructMenuEmbed(MenuItemsProvider menuProvider, MenuCommandData menuCommandData) {
+        final CompletableFuture<List<MenuItem>> menuItemsFuture;
+        try {
+            if (menuCommandData.getPrefetchFrom() != null && menuCommandData.getPrefetchTo() != null) {
+                menuItemsFuture = menuProvider.getMenuItemsForRange(menuCommandData.getPrefetchFrom(), menuCommandData.getPrefetchTo())
+                        .thenApply(days -> days.getOrDefault(menuCommandData.getMenuTime(), Collections.emptyList()));
+            } else {
+                menuItemsFuture = menuProvider.getMenuItemsForDate(menuCommandData.getMenuTime());
+            }
+        } catch (RuntimeException e) {
+            final CompletableFuture<ConstructedMenuEmbed> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        return menuItemsFuture.thenApply(menuItems -> renderMenuEmbed(menuProvider, menuCommandData, menuItems, null, System.currentTimeMillis()));
     }
 
-    public ConstructedMenuEmbed constructMenuEmbed(MenuItemsProvider menuProvider, MenuCommandData menuCommandData) throws ExecutionException, InterruptedException {
-        final List<MenuItem> menuItems = menuProvider.getMenuItemsForDate(menuCommandData.getMenuTime()).get();
+    /**
+     * @param notice     an optional line shown below the description, e.g. to mark the menu as outdated
+     * @param fetchedAt  when the menu items were fetched, shown as the timestamp of the embed
+     */
+    private ConstructedMenuEmbed renderMenuEmbed(MenuItemsProvider menuProvider, MenuCommandData menuCommandData, List<MenuItem> menuItems, String notice, long fetchedAt) {
 
+        final String description = LanguageManager.get().getTranslation("command.menu.response.menu.description");
         final EmbedBuilder menuEmbed = new EmbedBuilder()
                 .setTitle(menuCommandData.getEmbedTitle() + " - " + TimeUtils.formatDay(menuCommandData.getTargetDate()))
-                .setDescription(LanguageManager.get().getTranslation("command.menu.response.menu.description"))
+                .setDescription(notice != null ? "*" + notice + "*\n" + description : description)
                 .setColor(Color.decode("#0099ff"))
-                .setTimestamp(new Date().toInstant())
+                .setTimestamp(new Date(fetchedAt).toInstant())
                 .setFooter(menuProvider.getName(), null)
                 .setThumbnail(menuProvider.getProviderThumbnail());
 
@@ -394,7 +615,11 @@ public class MenuCommand extends ListenerAdapter {
         return new ConstructedMenuEmbed(menuEmbed.build(), menuItems);
     }
 
-    public static List<ConstructedMenuImageEmbed> constructImageEmbed(ImageSearcher.ImageSearch imageSearch, List<MenuItem> menuItems) {
+    /**
+     * Searches the images on the given executor, in the combined mode they are also downloaded and combined into a single
+     * preview.
+     */
+    public static CompletableFuture<List<ConstructedMenuImageEmbed>> constructImageEmbed(ImageSearcher.ImageSearch imageSearch, List<MenuItem> menuItems, Executor executor) {
         final ImageSearcher.ImageDisplayMode preferredImageDisplayMode = imageSearch.preferredImageDisplayMode();
 
         final List<String> irrelevantImageItems = Arrays.asList("Salatbuffet", "Dessert");
@@ -414,60 +639,69 @@ public class MenuCommand extends ListenerAdapter {
         }
 
         if (preferredImageDisplayMode == ImageSearcher.ImageDisplayMode.SEPARATE) {
-            final List<ConstructedMenuImageEmbed> embeds = new ArrayList<>();
-            for (String query : imageQueries) {
-                try {
-                    final List<String> images = imageSearch.searchImages(query);
-                    if (!images.isEmpty()) {
-                        final List<String> filteredImages = images.stream()
-                                .filter(i -> i.endsWith(".jpg") || i.endsWith(".png") || i.endsWith(".jpeg"))
-                                .filter(i -> i.startsWith("https://") || i.startsWith("http://"))
-                                .collect(Collectors.toList());
-
-                        final int maxImages = 1;
-                        final List<String> selectedImages = filteredImages.subList(0, Math.min(filteredImages.size(), maxImages));
-                        final String image = selectedImages.get((int) (Math.random() * selectedImages.size()));
-                        log.info("Fetched image for {}: {}", query, image);
-
-                        final EmbedBuilder imageEmbed = new EmbedBuilder()
-                                .setTitle("Preview")
-                                .setImage(image)
-                                .setColor(Color.decode("#0099ff"))
-                                .setTimestamp(new Date().toInstant());
-
-                        embeds.add(new ConstructedMenuImageEmbed(imageEmbed.build(), null));
-                    }
-                } catch (IOException e) {
-                    log.error("Failed to fetch images for query: {}", query, e);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-
-            return embeds;
+            return CompletableFuture.supplyAsync(() -> constructSeparateImageEmbeds(imageSearch, imageQueries), executor);
 
         } else if (preferredImageDisplayMode == ImageSearcher.ImageDisplayMode.COMBINED) {
+            final int desiredHeight = 300;
+            return ImageUtils.createCombinedImageFromQueries(imageSearch, imageQueries, desiredHeight, executor)
+                    .thenApply(combinedImage -> {
+                        try {
+                            final byte[] imageData = ImageUtils.encodePng(combinedImage);
+                            final String fileName = "menu-preview-" + UUID.randomUUID() + ".png";
+
+                            final MessageEmbed imageEmbed = new EmbedBuilder()
+                                    .setTitle(LanguageManager.get().getTranslation("command.menu.response.image.combined.title"))
+                                    .setColor(Color.decode("#0099ff"))
+                                    .setTimestamp(new Date().toInstant())
+                                    .setImage("attachment://" + fileName)
+                                    .build();
+
+                            return Collections.singletonList(new ConstructedMenuImageEmbed(imageEmbed, imageData, fileName));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .exceptionally(e -> {
+                        log.error("Failed to create combined image for menu items: {}", FutureUtils.unwrap(e).getMessage(), FutureUtils.unwrap(e));
+                        return Collections.emptyList();
+                    });
+        }
+
+        return CompletableFuture.completedFuture(Collections.emptyList());
+    }
 
+    private static List<ConstructedMenuImageEmbed> constructSeparateImageEmbeds(ImageSearcher.ImageSearch imageSearch, List<String> imageQueries) {
+        final List<ConstructedMenuImageEmbed> embeds = new ArrayList<>();
+        for (String query : imageQueries) {
             try {
-                final int desiredHeight = 300;
-                final BufferedImage combinedImage = ImageUtils.createCombinedImageFromQueries(imageSearch, imageQueries, desiredHeight);
-                final File file = new File("tmp-combined-mensa-image.png");
-                ImageIO.write(combinedImage, "png", file);
-
-                final MessageEmbed imageEmbed = new EmbedBuilder()
-                        .setTitle(LanguageManager.get().getTranslation("command.menu.response.image.combined.title"))
-                        .setColor(Color.decode("#0099ff"))
-                        .setTimestamp(new Date().toInstant())
-                        .setImage("attachment://" + file.getName())
-                        .build();
-
-                return Collections.singletonList(new ConstructedMenuImageEmbed(imageEmbed, file));
-            } catch (Exception e) {
-                log.error("Failed to create combined image for menu items: {}", e.getMessage(), e);
+                final List<String> images = imageSearch.searchImages(query);
+                if (!images.isEmpty()) {
+                    final List<String> filteredImages = images.stream()
+                            .filter(i -> i.endsWith(".jpg") || i.endsWith(".png") || i.endsWith(".jpeg"))
+                            .filter(i -> i.startsWith("https://") || i.startsWith("http://"))
+                            .collect(Collectors.toList());
+
+                    final int maxImages = 1;
+                    final List<String> selectedImages = filteredImages.subList(0, Math.min(filteredImages.size(), maxImages));
+                    final String image = selectedImages.get((int) (Math.random() * selectedImages.size()));
+                    log.info("Fetched image for {}: {}", query, image);
+
+                    final EmbedBuilder imageEmbed = new EmbedBuilder()
+                            .setTitle("Preview")
+                            .setImage(image)
+                            .setColor(Color.decode("#0099ff"))
+                            .setTimestamp(new Date().toInstant());
+
+                    embeds.add(new ConstructedMenuImageEmbed(imageEmbed.build(), null, null));
+                }
+            } catch (IOException e) {
+                log.error("Failed to fetch images for query: {}", query, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
 
-        return Collections.emptyList();
+        return embeds;
     }
 
     public static MenuCommandData parseFetchMenuCommand(SlashCommandInteractionEvent interaction) {
@@ -541,8 +775,18 @@ public class MenuCommand extends ListenerAdapter {
             title = LanguageManager.get().getTranslation("command.menu.options.friday.description");
         }
 
-        return new MenuCommandData(title,
+        final MenuCommandData menuCommandData = new MenuCommandData(title,
                 Date.from(targetDate.atStartOfDay().atZone(TimeZone.getDefault().toZoneId()).toInstant()),
                 new MenuTime(targetDate.getYear(), targetDate.getMonthValue(), targetDate.getDayOfMonth()));
+
+        if (MENU_FETCH_WEEKDAY_SUBCOMMANDS.contains(subcommand)) {
+            // fetch the remaining working days of that week in one go, the other weekday subcommands will then hit the cache
+            final LocalDate weekStart = targetDate.with(DayOfWeek.MONDAY);
+            final LocalDate rangeFrom = weekStart.isBefore(LocalDate.now()) ? LocalDate.now() : weekStart;
+            menuCommandData.setPrefetchFrom(MenuTime.fromLocalDate(rangeFrom));
+            menuCommandData.setPrefetchTo(MenuTime.fromLocalDate(targetDate.with(DayOfWeek.FRIDAY)));
+        }
+
+        return menuCommandData;
     }
 }
@@ -0,0 +1,207 @@
+package menu.providers;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wraps a {@link MenuItemsProvider} and answers repeated queries for the same date from a {@link MenuItemsCache}
+ * instead of fetching and parsing the menu again. Concurrent misses for the same date are joined into a single fetch by
+ * the {@link MenuFetchCoalescer}.
+ * <p>
+ * If a {@link MenuHistoryStore} is configured, every fetched menu is also written to it, and cache misses are answered
+ * from it when possible: menus of past days do not change anymore and are always taken from the history, menus of today
+ * and upcoming days only while they are within the TTLs of the cache.
+ * <p>
+ * Days that the {@link ClosedDaysCalendar} of the provider marks as closed are answered with an empty menu without any
+ * request.
+ */
+@Log4j2
+public class CachingMenuItemsProvider extends MenuItemsProvider {
+
+    @Getter
+    private final MenuItemsProvider delegate;
+    private final MenuItemsCache cache;
+    private final MenuFetchCoalescer coalescer;
+    private final MenuHistoryStore historyStore;
+    @Getter
+    private final ClosedDaysCalendar closedDays;
+
+    /**
+     * @param historyStore the persistent history, or <code>null</code> to only use the in-memory cache
+     */
+    public CachingMenuItemsProvider(MenuItemsProvider delegate, MenuItemsCache cache, MenuFetchCoalescer coalescer, MenuHistoryStore historyStore, ClosedDaysCalendar closedDays) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.coalescer = coalescer;
+        this.historyStore = historyStore;
+        this.closedDays = closedDays;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getDisplayMenuLink() {
+        return delegate.getDisplayMenuLink();
+    }
+
+    @Override
+    public String getProviderThumbnail() {
+        return delegate.getProviderThumbnail();
+    }
+
+    @Override
+    public CompletableFuture<List<MenuItem>> getMenuItemsForDate(MenuTime date) {
+        if (closedDays.isClosed(date)) {
+            log.info("Not fetching menu of [{}] for date {}, the canteen is closed", getName(), date);
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        final List<MenuItem> cached = cache.get(getName(), date);
+        if (cached != null) {
+            log.info("Using cached menu of [{}] for date: {}", getName(), date);
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        final List<MenuItem> stored = getFromHistory(date);
+        if (stored != null) {
+            log.info("Using menu of [{}] for date {} from the history", getName(), date);
+            return CompletableFuture.completedFuture(stored);
+        }
+
+        return coalescer.fetch(getName(), date, () -> fetchDay(date));
+    }
+
+    /**
+     * Only the span of days that are neither cached nor closed is requested from the delegate, every fetched day is then put into
+     * the cache separately so that following single-day lookups can be answered from it. The days are registered in the
+     * {@link MenuFetchCoalescer} like single-day fetches, so overlapping day and range requests share one fetch.
+     */
+    @Override
+    public CompletableFuture<Map<MenuTime, List<MenuItem>>> getMenuItemsForRange(MenuTime from, MenuTime to) {
+        final List<MenuTime> days = daysInRange(from, to);
+        final Map<MenuTime, List<MenuItem>> cachedDays = new LinkedHashMap<>();
+        final List<MenuTime> missingDays = new ArrayList<>();
+        for (MenuTime day : days) {
+            if (closedDays.isClosed(day)) {
+                cachedDays.put(day, Collections.emptyList());
+                continue;
+            }
+            List<MenuItem> cached = cache.get(getName(), day);
+            if (cached == null) {
+                cached = getFromHistory(day);
+            }
+            if (cached != null) {
+                cachedDays.put(day, cached);
+            } else {
+                missingDays.add(day);
+            }
+        }
+
+        if (missingDays.isEmpty()) {
+            log.info("Using cached menus of [{}] for range: {} - {}", getName(), from, to);
+            return CompletableFuture.completedFuture(cachedDays);
+        }
+
+        final Map<MenuTime, CompletableFuture<List<MenuItem>>> fetches = coalescer.fetchRange(getName(), missingDays, this::fetchRange, this::fetchDay);
+        return CompletableFuture.allOf(fetches.values().toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            final Map<MenuTime, List<MenuItem>> result = new LinkedHashMap<>();
+            for (MenuTime day : days) {
+                result.put(day, cachedDays.containsKey(day) ? cachedDays.get(day) : fetches.get(day).join());
+            }
+            return result;
+        });
+    }
+
+    // the cache is filled before the in-flight entry is removed, so no caller can slip through in between
+    private CompletableFuture<List<MenuItem>> fetchDay(MenuTime date) {
+        return delegate.getMenuItemsForDate(date).thenApply(menuItems -> {
+            store(date, menuItems);
+            return menuItems;
+        });
+    }
+
+    /**
+     * Days between the requested ones (cached, closed or fetched by another caller) are part of the response as well,
+     * but only the requested ones are stored. Requested days missing from the response are not stored either, the
+     * coalescer fetches them on their own.
+     */
+    private CompletableFuture<Map<MenuTime, List<MenuItem>>> fetchRange(List<MenuTime> days) {
+        return delegate.getMenuItemsForRange(days.get(0), days.get(days.size() - 1)).thenApply(fetchedDays -> {
+            for (MenuTime day : days) {
+                final List<MenuItem> menuItems = fetchedDays.get(day);
+                if (menuItems != null) {
+                    store(day, menuItems);
+                }
+            }
+            return fetchedDays;
+        });
+    }
+
+    /**
+     * @return the most recently fetched menu for the date from the cache or the history, no matter how old it is, or
+     * <code>null</code> if it has never been fetched.
+     */
+    public MenuItemsCache.MenuCacheEntry getLastKnownMenuItems(MenuTime date) {
+        final MenuItemsCache.MenuCacheEntry cached = cache.getLastKnown(getName(), date);
+        final MenuHistoryStore.StoredMenu stored = historyStore != null ? historyStore.get(getName(), date) : null;
+        if (stored != null && (cached == null || stored.getStoredAt() > cached.getCreatedAt())) {
+            return new MenuItemsCache.MenuCacheEntry(stored.getMenuItems(), stored.getStoredAt());
+        }
+        return cached;
+    }
+
+    /**
+     * @return whether a menu for the date that was fetched at <code>fetchedAt</code> would be used without fetching it
+     * again. Menus of past days do not change anymore and are always fresh.
+     */
+    public boolean isFresh(MenuTime date, long fetchedAt) {
+        return date.toLocalDate().isBefore(LocalDate.now()) || cache.isFresh(date, fetchedAt);
+    }
+
+    /**
+     * @return the menu from the history if it can still be used, which also puts it back into the in-memory cache.
+     */
+    private List<MenuItem> getFromHistory(MenuTime date) {
+        if (historyStore == null) {
+            return null;
+        }
+        final MenuHistoryStore.StoredMenu stored = historyStore.get(getName(), date);
+        if (stored == null) {
+            return null;
+        }
+
+        if (!isFresh(date, stored.getStoredAt())) {
+            return null;
+        }
+        if (date.toLocalDate().isBefore(LocalDate.now())) {
+            cache.put(getName(), date, stored.getMenuItems());
+        } else {
+            cache.put(getName(), date, stored.getMenuItems(), stored.getStoredAt());
+        }
+        return stored.getMenuItems();
+    }
+
+    private void store(MenuTime date, List<MenuItem> menuItems) {
+        cache.put(getName(), date, menuItems);
+        // empty menus are usually closed days or a failed parse, neither is worth keeping
+        if (historyStore != null && !menuItems.isEmpty()) {
+            historyStore.put(getName(), date, menuItems);
+        }
+    }
+
+    @Override
+    public List<String> getMenuEmojis(List<MenuItem> menuItems) {
+        return delegate.getMenuEmojis(menuItems);
+    }
+}
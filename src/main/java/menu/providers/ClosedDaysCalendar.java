@@ -0,0 +1,94 @@
+package menu.providers;
+
+import lombok.extern.log4j.Log4j2;
+import menu.bot.BiteBoardProperties;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Days on which a canteen is known to be closed, so that their menu does not have to be fetched at all.<br>
+ * Consists of weekdays that are always closed (e.g. <code>SATURDAY,SUNDAY</code>) and single dates or date ranges such
+ * as holidays and semester breaks (e.g. <code>2024-12-23..2025-01-06,2025-05-01</code>).
+ * <p>
+ * The properties <code>menuClosedWeekdays</code> and <code>menuClosedDates</code> apply to all providers. For a single
+ * provider, its name without whitespace can be appended, e.g. <code>menuClosedWeekdays.HochschuleMannheim</code>.
+ * Provider specific weekdays replace the general ones, provider specific dates are added to them.
+ */
+@Log4j2
+public class ClosedDaysCalendar {
+
+    private final Set<DayOfWeek> closedWeekdays;
+    private final List<LocalDate[]> closedRanges;
+
+    public ClosedDaysCalendar(Set<DayOfWeek> closedWeekdays, List<LocalDate[]> closedRanges) {
+        this.closedWeekdays = closedWeekdays;
+        this.closedRanges = closedRanges;
+    }
+
+    public static ClosedDaysCalendar fromProperties(String providerName) {
+        final String providerSuffix = "." + providerName.replaceAll("\\s+", "");
+        final String generalWeekdays = BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.MENU_CLOSED_WEEKDAYS, "SATURDAY,SUNDAY");
+        final String weekdays = BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.MENU_CLOSED_WEEKDAYS + providerSuffix, generalWeekdays);
+        final String dates = BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.MENU_CLOSED_DATES, "") + "," +
+                             BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.MENU_CLOSED_DATES + providerSuffix, "");
+
+        final ClosedDaysCalendar calendar = new ClosedDaysCalendar(parseWeekdays(weekdays), parseDateRanges(dates));
+        log.info("Closed days of [{}]: weekdays {}, {} dates or ranges", providerName, calendar.closedWeekdays, calendar.closedRanges.size());
+        return calendar;
+    }
+
+    public boolean isClosed(MenuTime date) {
+        final LocalDate day = date.toLocalDate();
+        if (closedWeekdays.contains(day.getDayOfWeek())) {
+            return true;
+        }
+        for (LocalDate[] range : closedRanges) {
+            if (!day.isBefore(range[0]) && !day.isAfter(range[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<DayOfWeek> parseWeekdays(String value) {
+        final Set<DayOfWeek> weekdays = EnumSet.noneOf(DayOfWeek.class);
+        for (String part : value.split(",")) {
+            final String weekday = part.trim();
+            if (weekday.isEmpty()) {
+                continue;
+            }
+            try {
+                weekdays.add(DayOfWeek.valueOf(weekday.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring invalid closed weekday: {}", weekday);
+            }
+        }
+        return weekdays;
+    }
+
+    private static List<LocalDate[]> parseDateRanges(String value) {
+        final List<LocalDate[]> ranges = new ArrayList<>();
+        for (String part : value.split(",")) {
+            final String range = part.trim();
+            if (range.isEmpty()) {
+                continue;
+            }
+            try {
+                final int separator = range.indexOf("..");
+                final LocalDate from = LocalDate.parse(separator == -1 ? range : range.substring(0, separator).trim());
+                final LocalDate to = separator == -1 ? from : LocalDate.parse(range.substring(separator + 2).trim());
+                ranges.add(new LocalDate[]{from, to});
+            } catch (DateTimeParseException e) {
+                log.warn("Ignoring invalid closed date or range: {}", range);
+            }
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,9 @@
+package menu.providers;
+
+import lombok.Data;
+
+@Data
+class MenuCacheKey {
+    private final String providerName;
+    private final MenuTime date;
+}
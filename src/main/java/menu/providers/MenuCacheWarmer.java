@@ -0,0 +1,196 @@
+package menu.providers;
+
+import lombok.extern.log4j.Log4j2;
+import menu.bot.BiteBoardProperties;
+import menu.service.FutureUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetches the menus of today and the next working days of every registered provider in the background, so that the
+ * first users of the day find them in the cache instead of waiting for the provider.
+ * <p>
+ * Runs once right after starting and then every day at the configured times (server time, e.g. <code>00:05</code>
+ * after the date changed and <code>10:30</code> before lunch). Every run is scheduled anew, so that the times stay the
+ * same across daylight saving changes. At most <code>concurrency</code> providers are warmed at the same time.
+ */
+@Log4j2
+public class MenuCacheWarmer {
+
+    private static final long RUN_TIMEOUT_SECONDS = 60;
+
+    private final MenuItemsProviderManager menuProviders;
+    private final List<LocalTime> times;
+    private final int workingDays;
+    private final int concurrency;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, Long> lastSuccess = new ConcurrentHashMap<>();
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    public MenuCacheWarmer(MenuItemsProviderManager menuProviders, List<LocalTime> times, int workingDays, int concurrency) {
+        this.menuProviders = menuProviders;
+        this.times = times;
+        this.workingDays = Math.max(1, workingDays);
+        this.concurrency = Math.max(1, concurrency);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "menu-cache-warmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the warmer or <code>null</code> if <code>menuWarmerTimes</code> is empty.
+     */
+    public static MenuCacheWarmer fromProperties(MenuItemsProviderManager menuProviders) {
+        final List<LocalTime> times = new ArrayList<>();
+        for (String part : BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.MENU_WARMER_TIMES, "00:05,10:30").split(",")) {
+            final String time = part.trim();
+            if (time.isEmpty()) {
+                continue;
+            }
+            try {
+                times.add(LocalTime.parse(time));
+            } catch (DateTimeParseException e) {
+                log.warn("Ignoring invalid cache warmer time: {}", time);
+            }
+        }
+        if (times.isEmpty()) {
+            return null;
+        }
+        Collections.sort(times);
+        return new MenuCacheWarmer(menuProviders, times,
+                BiteBoardProperties.getIntProperty(BiteBoardProperties.MENU_WARMER_DAYS, 5),
+                BiteBoardProperties.getIntProperty(BiteBoardProperties.MENU_WARMER_CONCURRENCY, 2));
+    }
+
+    public void start() {
+        log.info("Warming the menu cache now and daily at {} for today and the next {} working days", times, workingDays - 1);
+        scheduler.execute(this::warmNow);
+        scheduleNextRun();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void scheduleNextRun() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime next = null;
+        for (LocalTime time : times) {
+            final ZonedDateTime candidate = now.with(time);
+            if (candidate.isAfter(now)) {
+                next = candidate;
+                break;
+            }
+        }
+        if (next == null) {
+            next = now.toLocalDate().plusDays(1).atTime(times.get(0)).atZone(now.getZone());
+        }
+
+        final long delayMillis = Duration.between(now, next).toMillis();
+        log.info("Next menu cache warming at {}", next);
+        scheduler.schedule(() -> {
+            warmNow();
+            scheduleNextRun();
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Warms the caches of all providers on the calling thread, waiting until all of them are done.
+     */
+    public void warmNow() {
+        runCount.incrementAndGet();
+        final Semaphore permits = new Semaphore(concurrency);
+        final List<CompletableFuture<?>> runs = new ArrayList<>();
+
+        try {
+            for (MenuItemsProvider provider : menuProviders.values()) {
+                permits.acquire();
+                runs.add(warm(provider).whenComplete((result, error) -> permits.release()));
+            }
+            CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0])).get(RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // failures of the single providers have already been logged
+        } catch (RuntimeException e) {
+            log.error("Menu cache warming failed", e);
+        }
+    }
+
+    private CompletableFuture<Map<MenuTime, List<MenuItem>>> warm(MenuItemsProvider provider) {
+        final LocalDate from = LocalDate.now();
+        final LocalDate to = lastWorkingDay(provider, from);
+        final long start = System.currentTimeMillis();
+
+        final CompletableFuture<Map<MenuTime, List<MenuItem>>> future;
+        try {
+            future = FutureUtils.withDeadline(provider.getMenuItemsForRange(MenuTime.fromLocalDate(from), MenuTime.fromLocalDate(to)), RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (RuntimeException e) {
+            failureCount.incrementAndGet();
+            log.warn("Could not warm the menu cache of [{}]: {}", provider.getName(), e.toString());
+            final CompletableFuture<Map<MenuTime, List<MenuItem>>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        return future.whenComplete((days, error) -> {
+            if (error != null) {
+                failureCount.incrementAndGet();
+                log.warn("Could not warm the menu cache of [{}]: {}", provider.getName(), FutureUtils.unwrap(error).toString());
+            } else {
+                lastSuccess.put(provider.getName(), System.currentTimeMillis());
+                log.info("Warmed the menu cache of [{}] for {} - {} in {}ms", provider.getName(), from, to, System.currentTimeMillis() - start);
+            }
+        });
+    }
+
+    /**
+     * @return the day on which the configured number of working days starting at <code>from</code> ends, closed days
+     * in between are skipped by the provider itself.
+     */
+    private LocalDate lastWorkingDay(MenuItemsProvider provider, LocalDate from) {
+        final ClosedDaysCalendar closedDays = provider instanceof CachingMenuItemsProvider ? ((CachingMenuItemsProvider) provider).getClosedDays() : null;
+        LocalDate day = from;
+        int remaining = workingDays;
+        // bounded, in case the calendar marks every day as closed
+        for (int i = 0; i < 31; i++, day = day.plusDays(1)) {
+            if (closedDays == null || !closedDays.isClosed(MenuTime.fromLocalDate(day))) {
+                if (--remaining == 0) {
+                    return day;
+                }
+            }
+        }
+        return day;
+    }
+
+    /**
+     * @return when the menus of each provider were last warmed successfully, in epoch millis.
+     */
+    public Map<String, Long> getLastSuccess() {
+        return Collections.unmodifiableMap(lastSuccess);
+    }
+
+    public String describeStatistics() {
+        final StringBuilder builder = new StringBuilder("runs=" + runCount.get() + ", failures=" + failureCount.get() + ", lastSuccess={");
+        final List<String> providerNames = new ArrayList<>(lastSuccess.keySet());
+        Collections.sort(providerNames);
+        for (int i = 0; i < providerNames.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(providerNames.get(i)).append("=").append(new Date(lastSuccess.get(providerNames.get(i))));
+        }
+        return builder.append("}").toString();
+    }
+}
@@ -0,0 +1,137 @@
+package menu.providers;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Registry of menu fetches that are currently in flight. Concurrent callers asking for the same provider and date share
+ * the single pending fetch instead of each starting their own request, whether it was started for that day alone or as
+ * part of a range. The entry is removed once the fetch completes,
+ * so later callers either hit the {@link MenuItemsCache} or start a new fetch.
+ */
+@Log4j2
+public class MenuFetchCoalescer {
+
+    private final Map<MenuCacheKey, CompletableFuture<List<MenuItem>>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong originatedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    public CompletableFuture<List<MenuItem>> fetch(String providerName, MenuTime date, Supplier<CompletableFuture<List<MenuItem>>> fetcher) {
+        final MenuCacheKey key = new MenuCacheKey(providerName, date);
+        final CompletableFuture<List<MenuItem>> created = new CompletableFuture<>();
+        final CompletableFuture<List<MenuItem>> existing = inFlight.putIfAbsent(key, created);
+
+        if (existing != null) {
+            coalescedCount.incrementAndGet();
+            log.info("Joining in-flight menu fetch of [{}] for date: {}", providerName, date);
+            // every caller gets its own dependent future, so one caller cancelling does not affect the others
+            return existing.thenApply(Function.identity());
+        }
+
+        originatedCount.incrementAndGet();
+        try {
+            fetcher.get().whenComplete((menuItems, error) -> complete(key, created, menuItems, error));
+        } catch (RuntimeException e) {
+            complete(key, created, null, e);
+        }
+
+        return created.thenApply(Function.identity());
+    }
+
+    /**
+     * Registers every day as in flight, so that single-day and range fetches of overlapping days join each other. Days
+     * that are already in flight are joined, the remaining ones are requested together via <code>rangeFetcher</code>.
+     * Days that are missing from its result are requested on their own via <code>dayFetcher</code>.
+     *
+     * @param rangeFetcher fetches the menus from the first to the last of the given days
+     * @return the pending menu per day, in the order of the given days
+     */
+    public Map<MenuTime, CompletableFuture<List<MenuItem>>> fetchRange(String providerName, List<MenuTime> days,
+                                                                      Function<List<MenuTime>, CompletableFuture<Map<MenuTime, List<MenuItem>>>> rangeFetcher,
+                                                                      Function<MenuTime, CompletableFuture<List<MenuItem>>> dayFetcher) {
+        final Map<MenuTime, CompletableFuture<List<MenuItem>>> result = new LinkedHashMap<>();
+        final Map<MenuTime, CompletableFuture<List<MenuItem>>> created = new LinkedHashMap<>();
+        for (MenuTime day : days) {
+            final CompletableFuture<List<MenuItem>> future = new CompletableFuture<>();
+            final CompletableFuture<List<MenuItem>> existing = inFlight.putIfAbsent(new MenuCacheKey(providerName, day), future);
+            if (existing != null) {
+                coalescedCount.incrementAndGet();
+                log.info("Joining in-flight menu fetch of [{}] for date: {}", providerName, day);
+                result.put(day, existing.thenApply(Function.identity()));
+            } else {
+                created.put(day, future);
+                result.put(day, future.thenApply(Function.identity()));
+            }
+        }
+
+        if (created.isEmpty()) {
+            return result;
+        }
+
+        originatedCount.incrementAndGet();
+        try {
+            rangeFetcher.apply(new ArrayList<>(created.keySet())).whenComplete((menuItems, error) -> {
+                for (Map.Entry<MenuTime, CompletableFuture<List<MenuItem>>> entry : created.entrySet()) {
+                    final MenuCacheKey key = new MenuCacheKey(providerName, entry.getKey());
+                    if (error != null || menuItems.containsKey(entry.getKey())) {
+                        complete(key, entry.getValue(), error == null ? menuItems.get(entry.getKey()) : null, error);
+                    } else {
+                        // a missing day is not known to be empty, the range response may just not cover it
+                        log.warn("Menu of [{}] for date {} is missing from the range response, fetching it on its own", providerName, entry.getKey());
+                        fetchMissingDay(key, entry.getValue(), dayFetcher);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            for (Map.Entry<MenuTime, CompletableFuture<List<MenuItem>>> entry : created.entrySet()) {
+                complete(new MenuCacheKey(providerName, entry.getKey()), entry.getValue(), null, e);
+            }
+        }
+
+        return result;
+    }
+
+    private void fetchMissingDay(MenuCacheKey key, CompletableFuture<List<MenuItem>> created, Function<MenuTime, CompletableFuture<List<MenuItem>>> dayFetcher) {
+        originatedCount.incrementAndGet();
+        try {
+            dayFetcher.apply(key.getDate()).whenComplete((menuItems, error) -> complete(key, created, menuItems, error));
+        } catch (RuntimeException e) {
+            complete(key, created, null, e);
+        }
+    }
+
+    private void complete(MenuCacheKey key, CompletableFuture<List<MenuItem>> created, List<MenuItem> menuItems, Throwable error) {
+        inFlight.remove(key, created);
+        if (error != null) {
+            created.completeExceptionally(error);
+        } else {
+            created.complete(menuItems);
+        }
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public long getOriginatedCount() {
+        return originatedCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public String describeStatistics() {
+        return "inFlight=" + getInFlightCount() + ", originated=" + getOriginatedCount() + ", coalesced=" + getCoalescedCount();
+    }
+}
@@ -0,0 +1,445 @@
+package menu.providers;
+
+import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+import menu.bot.BiteBoardProperties;
+import menu.service.ByteBufferInputStream;
+
+import java.io.*;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Persists every fetched menu per provider and {@link MenuTime} in a local append-only file, so that menus that have
+ * already been published can be answered without a network request, even after a restart.
+ * <p>
+ * The file starts with a magic number and version, followed by one record per stored menu:
+ * <code>[int length][payload][int crc32]</code>. The payload contains the time it was stored, the key and the menu items,
+ * with every feature written once per record and referenced by its index from the ingredients.<br>
+ * Newer records for the same key replace older ones. Only the position of the latest record per key is kept in memory,
+ * the records themselves are read from a memory-mapped view of the file. Records that are outdated or older than the
+ * retention are dropped when the file is compacted, which happens once they take up more space than the live records.
+ * A record that was only partially written, e.g. because the process was killed, is cut off when the file is opened.
+ * <p>
+ * Once closed, the store answers every lookup with <code>null</code> and ignores writes, as fetches that were still
+ * running during the shutdown may complete after it.
+ */
+@Log4j2
+public class MenuHistoryStore {
+
+    private static final int MAGIC = 0x42424d48; // "BBMH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final long MIN_COMPACTION_GARBAGE_BYTES = 64 * 1024;
+
+    private final File file;
+    private final int retentionDays;
+
+    private final Map<MenuCacheKey, IndexEntry> index = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long fileSize;
+    private long liveBytes;
+    private boolean closed;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong compactionCount = new AtomicLong();
+
+    /**
+     * @param retentionDays menus for days further in the past than this are dropped, <code>0</code> to keep them forever
+     */
+    public MenuHistoryStore(File file, int retentionDays) throws IOException {
+        this.file = file;
+        this.retentionDays = retentionDays;
+        open();
+        load();
+        if (pruneExpired() > 0 || shouldCompact()) {
+            compact();
+        }
+        log.info("Opened menu history [{}] with {} menus in {} bytes", file, index.size(), fileSize);
+    }
+
+    /**
+     * The history is opt-in via <code>menuHistoryFile</code>.
+     *
+     * @return the store or <code>null</code> if it is not configured or cannot be opened.
+     */
+    public static MenuHistoryStore fromProperties() {
+        final String path = BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.MENU_HISTORY_FILE, "").trim();
+        if (path.isEmpty()) {
+            return null;
+        }
+        try {
+            return new MenuHistoryStore(new File(path), BiteBoardProperties.getIntProperty(BiteBoardProperties.MENU_HISTORY_RETENTION_DAYS, 90));
+        } catch (IOException e) {
+            log.error("Could not open the menu history [{}], continuing without it", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the latest stored menu or <code>null</code> if there is none.
+     */
+    public synchronized StoredMenu get(String providerName, MenuTime date) {
+        if (closed) {
+            return null;
+        }
+        final IndexEntry entry = index.get(new MenuCacheKey(providerName, date));
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        try {
+            final StoredMenu menu = new StoredMenu(readMenuItems(entry), entry.getStoredAt());
+            hitCount.incrementAndGet();
+            return menu;
+        } catch (IOException e) {
+            log.error("Could not read menu of [{}] for date {} from the history", providerName, date, e);
+            missCount.incrementAndGet();
+            return null;
+        }
+    }
+
+    public synchronized void put(String providerName, MenuTime date, List<MenuItem> menuItems) {
+        if (closed) {
+            log.debug("Menu history [{}] is closed, not storing the menu of [{}] for date {}", file, providerName, date);
+            return;
+        }
+        if (isExpired(date)) {
+            return;
+        }
+        try {
+            final long storedAt = System.currentTimeMillis();
+            final byte[] payload = encode(storedAt, providerName, date, menuItems);
+            final CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            final ByteBuffer record = ByteBuffer.allocate(4 + payload.length + 4);
+            record.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+            ((Buffer) record).flip();
+            final long offset = fileSize;
+            while (record.hasRemaining()) {
+                channel.write(record, offset + record.position());
+            }
+            fileSize += record.capacity();
+            writeCount.incrementAndGet();
+
+            final IndexEntry previous = index.put(new MenuCacheKey(providerName, date), new IndexEntry(offset, payload.length, storedAt));
+            liveBytes += record.capacity() - (previous != null ? previous.getRecordSize() : 0);
+
+            if (shouldCompact()) {
+                compact();
+            }
+        } catch (IOException e) {
+            log.error("Could not write menu of [{}] for date {} to the history", providerName, date, e);
+        }
+    }
+
+    /**
+     * Rewrites the file with only the latest record per key within the retention. The new file is written next to the
+     * old one and then moved over it, so that a crash during compaction leaves the old file intact.
+     */
+    public synchronized void compact() throws IOException {
+        if (closed) {
+            return;
+        }
+        pruneExpired();
+        final File compacted = new File(file.getPath() + ".compact");
+        final Map<MenuCacheKey, IndexEntry> compactedIndex = new HashMap<>();
+        final ByteBuffer source = map();
+
+        try (FileChannel target = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            target.write(header());
+            long offset = HEADER_SIZE;
+            for (Map.Entry<MenuCacheKey, IndexEntry> entry : index.entrySet()) {
+                final IndexEntry indexEntry = entry.getValue();
+                final ByteBuffer record = source.duplicate();
+                ((Buffer) record).limit((int) (indexEntry.getOffset() + indexEntry.getRecordSize())).position((int) indexEntry.getOffset());
+                target.write(record);
+                compactedIndex.put(entry.getKey(), new IndexEntry(offset, indexEntry.getLength(), indexEntry.getStoredAt()));
+                offset += indexEntry.getRecordSize();
+            }
+            target.force(true);
+        }
+
+        final long sizeBefore = fileSize;
+        closeChannel();
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+        index.clear();
+        index.putAll(compactedIndex);
+        liveBytes = fileSize - HEADER_SIZE;
+        compactionCount.incrementAndGet();
+        log.info("Compacted menu history [{}] from {} to {} bytes, {} menus", file, sizeBefore, fileSize, index.size());
+    }
+
+    public synchronized void close() {
+        closed = true;
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        mapped = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Could not close menu history [{}]", file, e);
+            }
+            channel = null;
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public String describeStatistics() {
+        final long size;
+        final int entries;
+        synchronized (this) {
+            size = fileSize;
+            entries = index.size();
+        }
+        return "entries=" + entries + ", bytes=" + size + ", hits=" + hitCount.get() + ", misses=" + missCount.get() +
+               ", writes=" + writeCount.get() + ", compactions=" + compactionCount.get();
+    }
+
+    private void open() throws IOException {
+        if (file.getParentFile() != null && !file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Could not create directory for menu history: " + file.getParentFile());
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileSize = channel.size();
+        mapped = null;
+
+        if (fileSize == 0) {
+            channel.write(header(), 0);
+            fileSize = HEADER_SIZE;
+        } else {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            ((Buffer) header).flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                channel.close();
+                throw new IOException("Not a menu history file or unsupported version: " + file);
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        index.clear();
+        liveBytes = 0;
+        final ByteBuffer buffer = map();
+
+        long offset = HEADER_SIZE;
+        while (offset < fileSize) {
+            if (fileSize - offset < 8) {
+                break;
+            }
+            final int length = buffer.getInt((int) offset);
+            if (length <= 0 || offset + 4 + length + 4 > fileSize) {
+                break;
+            }
+
+            final ByteBuffer payload = buffer.duplicate();
+            ((Buffer) payload).limit((int) (offset + 4 + length)).position((int) (offset + 4));
+            final CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt((int) (offset + 4 + length))) {
+                break;
+            }
+
+            final DataInputStream in = new DataInputStream(new ByteBufferInputStream(payload));
+            final long storedAt = in.readLong();
+            final String providerName = in.readUTF();
+            final MenuTime date = readDate(in);
+
+            final IndexEntry entry = new IndexEntry(offset, length, storedAt);
+            final IndexEntry previous = index.put(new MenuCacheKey(providerName, date), entry);
+            liveBytes += entry.getRecordSize() - (previous != null ? previous.getRecordSize() : 0);
+            offset += entry.getRecordSize();
+        }
+
+        if (offset < fileSize) {
+            log.warn("Menu history [{}] ends with an incomplete or damaged record at {}, dropping the remaining {} bytes", file, offset, fileSize - offset);
+            mapped = null;
+            channel.truncate(offset);
+            fileSize = offset;
+        }
+    }
+
+    /**
+     * Maps the whole file, mapping again only if it has grown since the last time.
+     */
+    private ByteBuffer map() throws IOException {
+        if (mapped == null || mapped.capacity() < fileSize) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+        return mapped;
+    }
+
+    /**
+     * The buffer methods are called via {@link Buffer}, as their <code>ByteBuffer</code> overrides only exist since
+     * Java 9 and would fail with a <code>NoSuchMethodError</code> on Java 8.
+     */
+    private static ByteBuffer header() {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+        ((Buffer) header).flip();
+        return header;
+    }
+
+    private int pruneExpired() {
+        int pruned = 0;
+        final Iterator<Map.Entry<MenuCacheKey, IndexEntry>> iterator = index.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<MenuCacheKey, IndexEntry> entry = iterator.next();
+            if (isExpired(entry.getKey().getDate())) {
+                liveBytes -= entry.getValue().getRecordSize();
+                iterator.remove();
+                pruned++;
+            }
+        }
+        return pruned;
+    }
+
+    private boolean isExpired(MenuTime date) {
+        return retentionDays > 0 && date.toLocalDate().isBefore(LocalDate.now().minusDays(retentionDays));
+    }
+
+    private boolean shouldCompact() {
+        final long garbage = fileSize - HEADER_SIZE - liveBytes;
+        return garbage > MIN_COMPACTION_GARBAGE_BYTES && garbage > liveBytes;
+    }
+
+    private List<MenuItem> readMenuItems(IndexEntry entry) throws IOException {
+        final ByteBuffer payload = map().duplicate();
+        ((Buffer) payload).limit((int) (entry.getOffset() + 4 + entry.getLength())).position((int) (entry.getOffset() + 4));
+        final DataInputStream in = new DataInputStream(new ByteBufferInputStream(payload));
+
+        in.readLong();
+        in.readUTF();
+        final MenuTime date = readDate(in);
+
+        final MenuItemFeature[] features = new MenuItemFeature[in.readUnsignedShort()];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = new MenuItemFeature(in.readUTF(), readNullableString(in), readNullableString(in));
+        }
+
+        final int itemCount = in.readUnsignedShort();
+        final List<MenuItem> menuItems = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            final MenuItem item = new MenuItem(date);
+            item.setName(readNullableString(in));
+            item.setPrice(readNullableString(in));
+            item.setUnit(readNullableString(in));
+            item.setIngredientsString(readNullableString(in));
+            item.setShouldFetchImages(in.readBoolean());
+
+            final int ingredientCount = in.readUnsignedShort();
+            for (int j = 0; j < ingredientCount; j++) {
+                final MenuItemIngredient ingredient = new MenuItemIngredient(readNullableString(in));
+                final int featureCount = in.readUnsignedShort();
+                for (int k = 0; k < featureCount; k++) {
+                    ingredient.getFeatures().add(features[in.readUnsignedShort()]);
+                }
+                item.getIngredients().add(ingredient);
+            }
+            menuItems.add(item);
+        }
+        return menuItems;
+    }
+
+    private static byte[] encode(long storedAt, String providerName, MenuTime date, List<MenuItem> menuItems) throws IOException {
+        final Map<MenuItemFeature, Integer> featureIndices = new LinkedHashMap<>();
+        for (MenuItem item : menuItems) {
+            for (MenuItemIngredient ingredient : item.getIngredients()) {
+                for (MenuItemFeature feature : ingredient.getFeatures()) {
+                    featureIndices.putIfAbsent(feature, featureIndices.size());
+                }
+            }
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(storedAt);
+        out.writeUTF(providerName);
+        out.writeShort(date.getYear());
+        out.writeByte(date.getMonth());
+        out.writeByte(date.getDay());
+
+        out.writeShort(featureIndices.size());
+        for (MenuItemFeature feature : featureIndices.keySet()) {
+            out.writeUTF(feature.getShortId());
+            writeNullableString(out, feature.getName());
+            writeNullableString(out, feature.getType());
+        }
+
+        out.writeShort(menuItems.size());
+        for (MenuItem item : menuItems) {
+            writeNullableString(out, item.getName());
+            writeNullableString(out, item.getPrice());
+            writeNullableString(out, item.getUnit());
+            writeNullableString(out, item.getIngredientsString());
+            out.writeBoolean(item.isShouldFetchImages());
+
+            out.writeShort(item.getIngredients().size());
+            for (MenuItemIngredient ingredient : item.getIngredients()) {
+                writeNullableString(out, ingredient.getName());
+                out.writeShort(ingredient.getFeatures().size());
+                for (MenuItemFeature feature : ingredient.getFeatures()) {
+                    out.writeShort(featureIndices.get(feature));
+                }
+            }
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static MenuTime readDate(DataInput in) throws IOException {
+        final int year = in.readShort();
+        final int month = in.readUnsignedByte();
+        final int day = in.readUnsignedByte();
+        return new MenuTime(year, month, day);
+    }
+
+    private static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @Data
+    public static class StoredMenu {
+        private final List<MenuItem> menuItems;
+        private final long storedAt;
+    }
+
+    @Data
+    private static class IndexEntry {
+        private final long offset;
+        private final int length;
+        private final long storedAt;
+
+        private long getRecordSize() {
+            return 4L + length + 4L;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package menu.providers;
+
+import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+import menu.bot.BiteBoardProperties;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache for parsed menus, keyed by provider name and {@link MenuTime}.
+ * Entries for today expire after a short TTL, since the canteen may still change the menu during the day, all other days
+ * are kept for the longer future TTL. Empty results, e.g. of a closed canteen, have their own TTL, so that the days
+ * without a menu do not cause a request every time they are asked for. Once the maximum size is reached, the least
+ * recently used entry is evicted.
+ * <p>
+ * Expired entries are not answered by {@link #get(String, MenuTime)}, but stay in the cache until they are replaced or
+ * evicted, so that {@link #getLastKnown(String, MenuTime)} can still serve them while the provider is unavailable.
+ */
+@Log4j2
+public class MenuItemsCache {
+
+    private final long todayTtlMillis;
+    private final long futureTtlMillis;
+    private final long emptyTtlMillis;
+    private final int maxEntries;
+
+    private final Map<MenuCacheKey, MenuCacheEntry> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong emptyHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public MenuItemsCache(long todayTtlMillis, long futureTtlMillis, long emptyTtlMillis, int maxEntries) {
+        this.todayTtlMillis = todayTtlMillis;
+        this.futureTtlMillis = futureTtlMillis;
+        this.emptyTtlMillis = emptyTtlMillis;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<MenuCacheKey, MenuCacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MenuCacheKey, MenuCacheEntry> eldest) {
+                if (size() > MenuItemsCache.this.maxEntries) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static MenuItemsCache fromProperties() {
+        return new MenuItemsCache(
+                TimeUnit.SECONDS.toMillis(BiteBoardProperties.getLongProperty(BiteBoardProperties.MENU_CACHE_TODAY_TTL_SECONDS, 300)),
+                TimeUnit.SECONDS.toMillis(BiteBoardProperties.getLongProperty(BiteBoardProperties.MENU_CACHE_FUTURE_TTL_SECONDS, 3600)),
+                TimeUnit.SECONDS.toMillis(BiteBoardProperties.getLongProperty(BiteBoardProperties.MENU_CACHE_EMPTY_TTL_SECONDS, 1800)),
+                BiteBoardProperties.getIntProperty(BiteBoardProperties.MENU_CACHE_MAX_ENTRIES, 256)
+        );
+    }
+
+    /**
+     * @return the cached menu items or <code>null</code> if there is no entry or it has expired.
+     */
+    public List<MenuItem> get(String providerName, MenuTime date) {
+        final MenuCacheKey key = new MenuCacheKey(providerName, date);
+        synchronized (entries) {
+            final MenuCacheEntry entry = entries.get(key);
+            if (entry != null && isFresh(date, entry.getMenuItems(), entry.getCreatedAt())) {
+                hitCount.incrementAndGet();
+                if (entry.getMenuItems().isEmpty()) {
+                    emptyHitCount.incrementAndGet();
+                }
+                return entry.getMenuItems();
+            }
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    public void put(String providerName, MenuTime date, List<MenuItem> menuItems) {
+        put(providerName, date, menuItems, System.currentTimeMillis());
+    }
+
+    /**
+     * @param createdAt when the menu items were fetched, so that menus loaded from elsewhere keep their original age.
+     */
+    public void put(String providerName, MenuTime date, List<MenuItem> menuItems, long createdAt) {
+        if (maxEntries <= 0 || !isFresh(date, menuItems, createdAt)) {
+            return;
+        }
+        final MenuCacheEntry entry = new MenuCacheEntry(Collections.unmodifiableList(new ArrayList<>(menuItems)), createdAt);
+        synchronized (entries) {
+            entries.put(new MenuCacheKey(providerName, date), entry);
+        }
+    }
+
+    /**
+     * @return the latest entry regardless of whether it has expired, or <code>null</code> if there is none.
+     */
+    public MenuCacheEntry getLastKnown(String providerName, MenuTime date) {
+        synchronized (entries) {
+            return entries.get(new MenuCacheKey(providerName, date));
+        }
+    }
+
+    public void invalidate(String providerName, MenuTime date) {
+        synchronized (entries) {
+            entries.remove(new MenuCacheKey(providerName, date));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getEmptyHitCount() {
+        return emptyHitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public String describeStatistics() {
+        return "entries=" + size() + ", hits=" + getHitCount() + " (empty=" + getEmptyHitCount() + "), misses=" + getMissCount() + ", evictions=" + getEvictionCount();
+    }
+
+    /**
+     * @return whether a menu for the given date that was fetched at <code>createdAt</code> is still within its TTL.
+     */
+    public boolean isFresh(MenuTime date, long createdAt) {
+        final long ttl = isToday(date) ? todayTtlMillis : futureTtlMillis;
+        return System.currentTimeMillis() - createdAt <= ttl;
+    }
+
+    private boolean isFresh(MenuTime date, List<MenuItem> menuItems, long createdAt) {
+        if (menuItems.isEmpty()) {
+            return System.currentTimeMillis() - createdAt <= emptyTtlMillis;
+        }
+        return isFresh(date, createdAt);
+    }
+
+    private static boolean isToday(MenuTime date) {
+        return date.toLocalDate().equals(LocalDate.now());
+    }
+
+    @Data
+    public static class MenuCacheEntry {
+        private final List<MenuItem> menuItems;
+        private final long createdAt;
+    }
+}
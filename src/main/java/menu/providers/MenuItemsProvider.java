@@ -1,13 +1,30 @@
 package menu.providers;
 
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 @Log4j2
 public abstract class MenuItemsProvider {
 
+    /**
+     * Executor that implementations should use to run their blocking fetching and parsing on.
+     * Set by the {@link MenuItemsProviderManager} on registration.
+     */
+    @Getter(AccessLevel.PROTECTED)
+    @Setter
+    private Executor fetchExecutor = ForkJoinPool.commonPool();
+
     public abstract String getName();
 
     public abstract String getDisplayMenuLink();
@@ -16,6 +33,31 @@ public abstract class MenuItemsProvider {
 
     public abstract CompletableFuture<List<MenuItem>> getMenuItemsForDate(MenuTime date);
 
+    /**
+     * Fetches the menus for all days from <code>from</code> to <code>to</code> (both inclusive).<br>
+     * The default implementation requests every day separately, providers whose source can deliver several days at
+     * once should override this to reduce the number of requests.
+     *
+     * @param from First day of the range
+     * @param to   Last day of the range
+     * @return Menu items per day, ordered by date. Days the source did not deliver may be missing.
+     */
+    public CompletableFuture<Map<MenuTime, List<MenuItem>>> getMenuItemsForRange(MenuTime from, MenuTime to) {
+        final List<MenuTime> days = daysInRange(from, to);
+        final List<CompletableFuture<List<MenuItem>>> futures = new ArrayList<>();
+        for (MenuTime day : days) {
+            futures.add(getMenuItemsForDate(day));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            final Map<MenuTime, List<MenuItem>> result = new LinkedHashMap<>();
+            for (int i = 0; i < days.size(); i++) {
+                result.put(days.get(i), futures.get(i).join());
+            }
+            return result;
+        });
+    }
+
     /**
      * Will post these emojis under the menu items.<br>
      * For example, use the following for the numbers 1-10:<br>
@@ -29,4 +71,13 @@ public abstract class MenuItemsProvider {
     public String toMdString() {
         return "[" + this.getName() + "](<" + this.getDisplayMenuLink() + ">)";
     }
+
+    protected static List<MenuTime> daysInRange(MenuTime from, MenuTime to) {
+        final List<MenuTime> days = new ArrayList<>();
+        final LocalDate end = to.toLocalDate();
+        for (LocalDate day = from.toLocalDate(); !day.isAfter(end); day = day.plusDays(1)) {
+            days.add(MenuTime.fromLocalDate(day));
+        }
+        return days;
+    }
 }
@@ -6,14 +6,33 @@ import lombok.extern.log4j.Log4j2;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 @Log4j2
 @Getter
 public class MenuItemsProviderManager {
     private final Map<String, MenuItemsProvider> providers = new HashMap<>();
+    private final MenuItemsCache cache;
+    private final MenuHistoryStore historyStore;
+    private final MenuFetchCoalescer coalescer = new MenuFetchCoalescer();
+    private final Executor fetchExecutor;
+
+    /**
+     * @param historyStore the persistent menu history, or <code>null</code> if it is disabled
+     */
+    public MenuItemsProviderManager(MenuItemsCache cache, MenuHistoryStore historyStore, Executor fetchExecutor) {
+        this.cache = cache;
+        this.historyStore = historyStore;
+        this.fetchExecutor = fetchExecutor;
+    }
 
+    /**
+     * Registers the provider wrapped in a {@link CachingMenuItemsProvider}, so that all lookups via this manager share
+     * the same menu cache, history and in-flight fetches. The provider will run its fetches on the shared fetch executor.
+     */
     public void register(MenuItemsProvider provider) {
-        providers.put(provider.getName(), provider);
+        provider.setFetchExecutor(fetchExecutor);
+        providers.put(provider.getName(), new CachingMenuItemsProvider(provider, cache, coalescer, historyStore, ClosedDaysCalendar.fromProperties(provider.getName())));
     }
 
     public MenuItemsProvider get(String name) {
@@ -2,6 +2,8 @@ package menu.providers;
 
 import lombok.Data;
 
+import java.time.LocalDate;
+
 @Data
 public class MenuTime {
     private final int year;
@@ -11,4 +13,12 @@ public class MenuTime {
     public boolean matches(MenuTime time) {
         return year == time.year && month == time.month && day == time.day;
     }
+
+    public LocalDate toLocalDate() {
+        return LocalDate.of(year, month, day);
+    }
+
+    public static MenuTime fromLocalDate(LocalDate date) {
+        return new MenuTime(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+    }
 }
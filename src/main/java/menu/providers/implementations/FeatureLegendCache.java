@@ -0,0 +1,59 @@
+package menu.providers.implementations;
+
+import menu.providers.MenuItemFeature;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps one instance of every feature legend (allergens, additives, ...) that has been parsed. All canteens of the
+ * Studierendenwerk and every day of the same canteen use the same legend, so a newly parsed legend that equals a known
+ * one is replaced by the known one and the menu items of all providers reference the same feature objects instead of
+ * holding a copy per page.
+ */
+public class FeatureLegendCache {
+
+    private final Map<Map<String, MenuItemFeature>, Map<String, MenuItemFeature>> legends;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public FeatureLegendCache(int maxEntries) {
+        this.legends = new LinkedHashMap<Map<String, MenuItemFeature>, Map<String, MenuItemFeature>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Map<String, MenuItemFeature>, Map<String, MenuItemFeature>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the known legend that equals the given one, or the given one (unmodifiable) if it has not been seen yet.
+     */
+    public Map<String, MenuItemFeature> intern(Map<String, MenuItemFeature> features) {
+        if (features.isEmpty()) {
+            return features;
+        }
+        synchronized (legends) {
+            final Map<String, MenuItemFeature> known = legends.get(features);
+            if (known != null) {
+                hitCount.incrementAndGet();
+                return known;
+            }
+            missCount.incrementAndGet();
+            final Map<String, MenuItemFeature> legend = Collections.unmodifiableMap(features);
+            legends.put(legend, legend);
+            return legend;
+        }
+    }
+
+    public String describeStatistics() {
+        final int size;
+        synchronized (legends) {
+            size = legends.size();
+        }
+        return "legends=" + size + ", hits=" + hitCount.get() + ", misses=" + missCount.get();
+    }
+}
@@ -1,19 +1,15 @@
 package menu.providers.implementations;
 
 import lombok.extern.log4j.Log4j2;
+import menu.bot.BiteBoardProperties;
 import menu.providers.*;
 import menu.service.SiteFetcher;
 import okhttp3.FormBody;
 import okhttp3.Headers;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.nodes.Node;
-import org.jsoup.select.Elements;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
@@ -21,6 +17,16 @@ import java.util.stream.Collectors;
 @Log4j2
 public class LegacyHochschuleMannheimTagessichtMenuProvider extends MenuItemsProvider {
 
+    private final String websiteBaseUrl;
+
+    public LegacyHochschuleMannheimTagessichtMenuProvider() {
+        this(BiteBoardProperties.getBaseUrlProperty(BiteBoardProperties.STW_MA_WEBSITE_BASE_URL, "https://www.stw-ma.de"));
+    }
+
+    public LegacyHochschuleMannheimTagessichtMenuProvider(String websiteBaseUrl) {
+        this.websiteBaseUrl = websiteBaseUrl;
+    }
+
     @Override
     public String getName() {
         return "Hochschule Mannheim (legacy)";
@@ -52,8 +58,10 @@ public class LegacyHochschuleMannheimTagessichtMenuProvider extends MenuItemsPro
                         .add("Upgrade-Insecure-Requests", "1")
                         .build();
 
-                final Document document = SiteFetcher.performPostAndParseHtml("https://www.stw-ma.de/Essen+_+Trinken/Speisepl%C3%A4ne/Hochschule+Mannheim.html", formBody, headers, response -> response);
-                final List<MenuItem> items = parseMenuItems(document, date);
+                final Document document = SiteFetcher.performPostAndParseHtml(SiteFetcher.ClientProfile.MENU_API, websiteBaseUrl + "/Essen+_+Trinken/Speisepl%C3%A4ne/Hochschule+Mannheim.html", formBody, headers);
+                final TagessichtMenuParser.Page page = TagessichtMenuParser.parse(document);
+                log.info(page.getTitle());
+                final List<MenuItem> items = page.getMenuItems(date);
                 return items.stream()
                         .filter(item -> date.matches(item.getMenuTime()))
                         .collect(Collectors.toList());
@@ -61,116 +69,11 @@ public class LegacyHochschuleMannheimTagessichtMenuProvider extends MenuItemsPro
                 log.error("Could not load or parse the menu for the given date: {}", date, e);
                 throw new RuntimeException("Could not load or parse the menu for the given date: " + date, e);
             }
-        });
+        }, getFetchExecutor());
     }
 
     @Override
     public List<String> getMenuEmojis(List<MenuItem> menuItems) {
         return Arrays.asList("\u0031\u20E3", "\u0032\u20E3", "\u0033\u20E3");
     }
-
-    private List<MenuItem> parseMenuItems(Document document, MenuTime queryDate) {
-        final String title = document.selectFirst("title").text();
-        log.info(title);
-
-        final List<MenuItemFeature> menuItemFeatures = parseMenuItemFeatures(document);
-        final List<MenuItem> menuItems = new ArrayList<>();
-
-        final Elements rows = document.select(".speiseplan-table tr");
-
-        for (Element row : rows) {
-            try {
-                final MenuItem menuItem = new MenuItem(queryDate);
-
-                final String menuName = row.selectFirst(".speiseplan-table-menu-headline strong").text().trim();
-                final String menuDescription = row.selectFirst(".speiseplan-table-menu-content").text().trim();
-                final String menuPrice = row.selectFirst(".speiseplan-table-col-last .price").text().trim();
-                final String menuUnit = row.selectFirst(".speiseplan-table-col-last .customSelection").text().trim();
-
-                menuItem.setName(menuName);
-                menuItem.setPrice(menuPrice);
-                menuItem.setUnit(menuUnit);
-
-                if (Arrays.asList("Salatbuffet", "Dessert").contains(menuItem.getName())) {
-                    menuItem.setShouldFetchImages(false);
-                }
-
-                final String[] components = menuDescription.split(", ");
-                for (String component : components) {
-                    final String name = component.replaceAll("\\([^)]*\\)", "").trim();
-                    final String[] features;
-                    if (component.matches(".+\\(([^)]*)\\)")) {
-                        features = component.split("\\(")[1].split("\\)")[0].split(",");
-                    } else {
-                        features = new String[0];
-                        log.warn("Menu item [{}] does not specify features: {}", menuItem.getName(), component);
-                    }
-
-                    final MenuItemIngredient ingredient = new MenuItemIngredient(name);
-                    menuItem.getIngredients().add(ingredient);
-
-                    for (String feature : features) {
-                        MenuItemFeature featureObj = menuItemFeatures.stream()
-                                .filter(f -> f.getShortId().equals(feature.trim()))
-                                .findFirst()
-                                .orElse(null);
-                        if (featureObj != null) {
-                            ingredient.getFeatures().add(featureObj);
-                        } else {
-                            log.warn("Feature not found: {}", feature);
-                        }
-                    }
-                }
-
-                menuItems.add(menuItem);
-            } catch (Exception e) {
-                log.error("Could not parse menu item: {}", row.outerHtml(), e);
-            }
-        }
-
-        return menuItems;
-    }
-
-    private List<MenuItemFeature> parseMenuItemFeatures(Document document) {
-        final List<MenuItemFeature> features = new ArrayList<>();
-        final Elements featureContainerElements = document.select(".speiseplan-label-content");
-
-        if (featureContainerElements.isEmpty()) {
-            log.warn("No feature container elements found");
-            return features;
-        }
-
-        final Element featureContainerElement = featureContainerElements.stream()
-                .max(Comparator.comparingInt(Element::childNodeSize))
-                .orElse(null);
-
-        String currentType = "";
-        for (Node child : featureContainerElement.childNodes()) {
-            if (child instanceof Element) {
-                final Element element = (Element) child;
-                if (element.hasClass("speiseplan-category")) {
-                    currentType = element.text().trim().replace(":", "");
-                } else if (element.hasClass("speiseplan-label")) {
-                    final String id = element.selectFirst("sup b").text().trim();
-                    String name = element.childNode(2).toString().trim();
-                    if (name.isEmpty()) {
-                        name = element.childNode(4).toString().trim();
-                    }
-                    if (!id.isEmpty() && !name.isEmpty()) {
-                        features.add(new MenuItemFeature(id, name, currentType));
-                    } else {
-                        log.warn("Could not parse feature " + id + " " + name + " " + currentType + " from " + element.outerHtml());
-                    }
-                }
-            }
-        }
-
-        if (features.isEmpty()) {
-            log.warn("No features found");
-        } else {
-            log.info("Found {} features", features.size());
-        }
-
-        return features;
-    }
-}
\ No newline at end of file
+}
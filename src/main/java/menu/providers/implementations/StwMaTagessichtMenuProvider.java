@@ -0,0 +1,309 @@
+package menu.providers.implementations;
+
+import lombok.extern.log4j.Log4j2;
+import menu.bot.BiteBoardProperties;
+import menu.providers.*;
+import menu.service.ContentHashCache;
+import menu.service.JsonStringFieldReader;
+import menu.service.SiteFetcher;
+import okhttp3.FormBody;
+import okhttp3.Headers;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Menu of a canteen of the Studierendenwerk Mannheim, fetched from the "Tagessicht" API. The canteen is selected by its
+ * location id, so that one class serves all of them.
+ * <p>
+ * All instances share the HTTP client and its rate limiter (via {@link SiteFetcher}), the hashes of unchanged responses
+ * and the parsed feature legends. Registered with a {@link MenuItemsProviderManager}, they also share its menu cache,
+ * history and in-flight fetches, so that serving more canteens only adds the requests for their own menus.
+ */
+@Log4j2
+public class StwMaTagessichtMenuProvider extends MenuItemsProvider {
+
+    private static final Pattern DATE_PATTERN = Pattern.compile("\\b(\\d{1,2})\\.(\\d{1,2})\\.(\\d{4}|\\d{2})?");
+
+    private static final String DEFAULT_DISPLAY_MENU_LINK = "https://www.stw-ma.de/essen-trinken/speiseplaene/";
+    private static final String DEFAULT_THUMBNAIL = "https://encrypted-tbn0.gstatic.com/images?q=tbn:ANd9GcQPpP_niFgiON6iSyRENQKGY2VdVsccUg2nI45u2N1L2Q&s";
+
+    // the menu is fetched via POST, so HTTP caching does not apply. Unchanged responses are detected by their hash instead.
+    // the request keys contain the location id, so the caches can be shared by all canteens
+    private static final ContentHashCache<List<MenuItem>> DAY_CONTENT_HASHES = new ContentHashCache<>(256);
+    private static final ContentHashCache<Map<MenuTime, List<MenuItem>>> WEEK_CONTENT_HASHES = new ContentHashCache<>(64);
+    private static final FeatureLegendCache FEATURE_LEGENDS = new FeatureLegendCache(8);
+
+    private final String apiBaseUrl;
+    private final String locationId;
+    private final String name;
+    private final String displayMenuLink;
+    private final String providerThumbnail;
+
+    public StwMaTagessichtMenuProvider(String locationId, String name, String displayMenuLink, String providerThumbnail) {
+        this(BiteBoardProperties.getBaseUrlProperty(BiteBoardProperties.STW_MA_API_BASE_URL, "https://api.stw-ma.de"), locationId, name, displayMenuLink, providerThumbnail);
+    }
+
+    public StwMaTagessichtMenuProvider(String apiBaseUrl, String locationId, String name, String displayMenuLink, String providerThumbnail) {
+        this.apiBaseUrl = apiBaseUrl;
+        this.locationId = locationId;
+        this.name = name;
+        this.displayMenuLink = displayMenuLink;
+        this.providerThumbnail = providerThumbnail;
+    }
+
+    /**
+     * Creates a provider for every location id in <code>stwMaLocations</code>. The name, menu link and thumbnail of a
+     * location are configured as <code>stwMaLocation.&lt;id&gt;.name</code>, <code>.link</code> and
+     * <code>.thumbnail</code>, only the name is required.
+     *
+     * @return the configured providers, empty if <code>stwMaLocations</code> is empty
+     */
+    public static List<MenuItemsProvider> fromProperties() {
+        final List<MenuItemsProvider> providers = new ArrayList<>();
+        final Set<String> names = new HashSet<>();
+
+        for (String part : BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.STW_MA_LOCATIONS, "").split(",")) {
+            final String locationId = part.trim();
+            if (locationId.isEmpty()) {
+                continue;
+            }
+            final String prefix = BiteBoardProperties.STW_MA_LOCATION_PREFIX + locationId + ".";
+            final String name = getLocationProperty(prefix + "name", "");
+            if (name.isEmpty()) {
+                log.error("Ignoring stw-ma location [{}], it has no {}name", locationId, prefix);
+                continue;
+            }
+            if (!names.add(name)) {
+                log.error("Ignoring stw-ma location [{}], the name [{}] is already used by another location", locationId, name);
+                continue;
+            }
+            providers.add(new StwMaTagessichtMenuProvider(locationId, name,
+                    getLocationProperty(prefix + "link", DEFAULT_DISPLAY_MENU_LINK),
+                    getLocationProperty(prefix + "thumbnail", DEFAULT_THUMBNAIL)));
+        }
+
+        return providers;
+    }
+
+    private static String getLocationProperty(String key, String defaultValue) {
+        final String value = BiteBoardProperties.getProperties().getProperty(key, "").trim();
+        return value.isEmpty() ? defaultValue : value;
+    }
+
+    public static FeatureLegendCache getFeatureLegends() {
+        return FEATURE_LEGENDS;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getDisplayMenuLink() {
+        return displayMenuLink;
+    }
+
+    @Override
+    public String getProviderThumbnail() {
+        return providerThumbnail;
+    }
+
+    @Override
+    public CompletableFuture<List<MenuItem>> getMenuItemsForDate(MenuTime date) {
+        log.info("Loading menu of [{}] for date: {}", name, date);
+        // the request itself does not occupy a thread, only the parsing runs on the fetch executor.
+        // thenCompose instead of thenApplyAsync, so that a rejection by the executor fails the future instead of getting lost
+        final String requestKey = locationId + ":day:" + date;
+        return fetchMenuBody(date, "day").thenCompose(body -> CompletableFuture.supplyAsync(() -> {
+            final String contentHash = ContentHashCache.sha256(body);
+            final List<MenuItem> unchanged = DAY_CONTENT_HASHES.getIfUnchanged(requestKey, contentHash);
+            if (unchanged != null) {
+                log.info("Menu response for date {} is unchanged, skipping parsing", date);
+                return unchanged;
+            }
+
+            final List<MenuItem> items = TagessichtMenuParser.parse(parseMenuDocument(body), FEATURE_LEGENDS).getMenuItems(date).stream()
+                    .filter(item -> date.matches(item.getMenuTime()))
+                    .collect(Collectors.toList());
+            DAY_CONTENT_HASHES.put(requestKey, contentHash, items);
+            return items;
+        }, getFetchExecutor())).whenComplete((items, error) -> {
+            if (error != null) {
+                log.error("Could not load or parse the menu for the given date: {}", date, error);
+            }
+        });
+    }
+
+    /**
+     * Requests the week view once per calendar week in the range and splits it into the single days. If the week page
+     * cannot be split by date, this falls back to requesting every day on its own. Days without a table in the week view
+     * are left out of the result instead of being reported as empty, as the week view may just not cover them.
+     */
+    @Override
+    public CompletableFuture<Map<MenuTime, List<MenuItem>>> getMenuItemsForRange(MenuTime from, MenuTime to) {
+        log.info("Loading menu of [{}] for range: {} - {}", name, from, to);
+        final List<MenuTime> days = daysInRange(from, to);
+        final Set<LocalDate> weekStarts = new LinkedHashSet<>();
+        for (MenuTime day : days) {
+            weekStarts.add(day.toLocalDate().with(DayOfWeek.MONDAY));
+        }
+
+        final List<CompletableFuture<Map<MenuTime, List<MenuItem>>>> weekFutures = new ArrayList<>();
+        for (LocalDate weekStart : weekStarts) {
+            final MenuTime weekDate = MenuTime.fromLocalDate(weekStart);
+            final String requestKey = locationId + ":week:" + weekDate;
+            weekFutures.add(fetchMenuBody(weekDate, "week")
+                    .thenCompose(body -> CompletableFuture.supplyAsync(() -> {
+                        final String contentHash = ContentHashCache.sha256(body);
+                        final Map<MenuTime, List<MenuItem>> unchanged = WEEK_CONTENT_HASHES.getIfUnchanged(requestKey, contentHash);
+                        if (unchanged != null) {
+                            log.info("Menu response for the week of {} is unchanged, skipping parsing", weekDate);
+                            return unchanged;
+                        }
+
+                        final Map<MenuTime, List<MenuItem>> items = parseWeekMenuItems(parseMenuDocument(body), weekStart);
+                        WEEK_CONTENT_HASHES.put(requestKey, contentHash, items);
+                        return items;
+                    }, getFetchExecutor()))
+                    .whenComplete((items, error) -> {
+                        if (error != null) {
+                            log.error("Could not load or parse the menu for the week of: {}", weekDate, error);
+                        }
+                    }));
+        }
+
+        return CompletableFuture.allOf(weekFutures.toArray(new CompletableFuture<?>[0])).thenCompose(ignored -> {
+            final Map<MenuTime, List<MenuItem>> weekItems = new HashMap<>();
+            for (CompletableFuture<Map<MenuTime, List<MenuItem>>> weekFuture : weekFutures) {
+                final Map<MenuTime, List<MenuItem>> week = weekFuture.join();
+                if (week == null) {
+                    log.warn("Could not split the week menu into days, loading the range {} - {} day by day", from, to);
+                    return super.getMenuItemsForRange(from, to);
+                }
+                weekItems.putAll(week);
+            }
+
+            final Map<MenuTime, List<MenuItem>> result = new LinkedHashMap<>();
+            for (MenuTime day : days) {
+                if (weekItems.containsKey(day)) {
+                    result.put(day, weekItems.get(day));
+                }
+            }
+            return CompletableFuture.completedFuture(result);
+        });
+    }
+
+    private CompletableFuture<byte[]> fetchMenuBody(MenuTime date, String mode) {
+        // location=611&lang=de&date=2024-09-25&mode=day
+        final FormBody formBody = new FormBody.Builder()
+                .add("date", date.getYear() + "-" + String.format("%02d", date.getMonth()) + "-" + String.format("%02d", date.getDay()))
+                .add("location", locationId)
+                .add("lang", "de")
+                .add("mode", mode)
+                .build();
+
+        final Headers headers = new Headers.Builder()
+                .add("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8")
+                .add("Accept-Language", "de")
+                .add("Content-Type", "application/x-www-form-urlencoded")
+                .add("Upgrade-Insecure-Requests", "1")
+                .build();
+
+        return SiteFetcher.performPostAsync(SiteFetcher.ClientProfile.MENU_API, apiBaseUrl + "/tl1/menuplan", formBody, headers, 0);
+    }
+
+    /**
+     * The HTML is embedded as the <code>content</code> field of the JSON response, it is decoded directly into the parser
+     * instead of creating the body string, the JSON object and the unescaped HTML string first.<br>
+     * The body itself is still buffered completely as bytes, since its hash decides whether it has to be parsed at all,
+     * see {@link ContentHashCache}. Only these intermediate copies are saved, not the buffering of the response.
+     */
+    private static Document parseMenuDocument(byte[] body) {
+        // the parser needs a reader that supports mark/reset
+        try (Reader content = new BufferedReader(new JsonStringFieldReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8), "content"))) {
+            return Parser.htmlParser().parseInput(content, "");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the menu HTML from the response", e);
+        }
+    }
+
+    @Override
+    public List<String> getMenuEmojis(List<MenuItem> menuItems) {
+        return Arrays.asList("\u0031\u20E3", "\u0032\u20E3", "\u0033\u20E3");
+    }
+
+    /**
+     * The week view contains one menu table per day. Every table is assigned to the date found in the closest heading
+     * before it. A table whose heading holds an impossible date (e.g. <code>31.02.</code>) is skipped.
+     *
+     * @return the menu items per day or <code>null</code> if a table could not be assigned to a date
+     */
+    private Map<MenuTime, List<MenuItem>> parseWeekMenuItems(Document document, LocalDate weekStart) {
+        final TagessichtMenuParser.Page page = TagessichtMenuParser.parse(document, FEATURE_LEGENDS);
+        final Map<MenuTime, List<MenuItem>> menuItems = new HashMap<>();
+
+        for (TagessichtMenuParser.Table table : page.getTables()) {
+            final MenuTime tableDate;
+            try {
+                tableDate = findTableDate(table.getElement(), weekStart);
+            } catch (DateTimeException e) {
+                log.warn("Skipping a menu table of [{}] in the week of {}, its heading has an invalid date: {}", name, weekStart, e.getMessage());
+                continue;
+            }
+            if (tableDate == null) {
+                return null;
+            }
+            menuItems.computeIfAbsent(tableDate, date -> new ArrayList<>())
+                    .addAll(table.getMenuItems(page.getFeatures(), tableDate));
+        }
+
+        return menuItems.isEmpty() ? null : menuItems;
+    }
+
+    /**
+     * @throws DateTimeException if the closest date in the headings does not exist
+     */
+    private MenuTime findTableDate(Element table, LocalDate weekStart) {
+        for (Element current = table; current != null; current = current.parent()) {
+            for (Element sibling = current.previousElementSibling(); sibling != null; sibling = sibling.previousElementSibling()) {
+                if (sibling.hasClass("speiseplan-table") || !sibling.select(".speiseplan-table").isEmpty()) {
+                    continue;
+                }
+                final Matcher matcher = DATE_PATTERN.matcher(sibling.text());
+                if (matcher.find()) {
+                    final int day = Integer.parseInt(matcher.group(1));
+                    final int month = Integer.parseInt(matcher.group(2));
+                    // the year is often omitted in the headings, take the one closest to the requested week
+                    int year = matcher.group(3) != null ? Integer.parseInt(matcher.group(3)) : weekStart.getYear();
+                    if (year < 100) {
+                        year += 2000;
+                    } else if (matcher.group(3) == null && month - weekStart.getMonthValue() > 6) {
+                        year--;
+                    } else if (matcher.group(3) == null && weekStart.getMonthValue() - month > 6) {
+                        year++;
+                    }
+                    return MenuTime.fromLocalDate(LocalDate.of(year, month, day));
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,335 @@
+package menu.providers.implementations;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import menu.providers.MenuItem;
+import menu.providers.MenuItemFeature;
+import menu.providers.MenuItemIngredient;
+import menu.providers.MenuTime;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+import org.jsoup.select.QueryParser;
+
+import java.util.*;
+
+/**
+ * Parses the "Tagessicht" menu pages of the Studierendenwerk Mannheim, shared by both the current API and the legacy
+ * page, which use the same markup.<br>
+ * The document is walked only once: the menu rows, their fields and the feature legend are collected in a single
+ * traversal, the features are looked up by their short id and the ingredient lists are tokenized by hand instead of with
+ * regular expressions.
+ */
+@Log4j2
+public class TagessichtMenuParser {
+
+    private static final Evaluator FEATURE_ID = QueryParser.parse("sup b");
+    private static final Set<String> MENUS_WITHOUT_IMAGES = new HashSet<>(Arrays.asList("Salatbuffet", "Dessert"));
+
+    public static Page parse(Document document) {
+        return parse(document, null);
+    }
+
+    /**
+     * @param legends the cache to replace the parsed feature legend with an equal known one from, may be <code>null</code>
+     */
+    public static Page parse(Document document, FeatureLegendCache legends) {
+        final PageCollector collector = new PageCollector();
+        NodeTraversor.traverse(collector, document);
+        final Map<String, MenuItemFeature> features = parseMenuItemFeatures(collector.featureContainers);
+        return new Page(collector.title, legends != null ? legends.intern(features) : features, collector.tables);
+    }
+
+    public static List<MenuItem> parseMenuItems(Document document, MenuTime date) {
+        return parse(document).getMenuItems(date);
+    }
+
+    public static Map<String, MenuItemFeature> parseMenuItemFeatures(Document document) {
+        return parse(document).getFeatures();
+    }
+
+    /**
+     * @return the features of the largest legend on the page, by their short id in the order of the legend.
+     */
+    private static Map<String, MenuItemFeature> parseMenuItemFeatures(List<Element> featureContainerElements) {
+        final Map<String, MenuItemFeature> features = new LinkedHashMap<>();
+
+        if (featureContainerElements.isEmpty()) {
+            log.warn("No feature container elements found");
+            return features;
+        }
+
+        Element featureContainerElement = featureContainerElements.get(0);
+        for (Element candidate : featureContainerElements) {
+            if (candidate.childNodeSize() > featureContainerElement.childNodeSize()) {
+                featureContainerElement = candidate;
+            }
+        }
+
+        String currentType = "";
+        for (Element element : featureContainerElement.children()) {
+            if (element.hasClass("speiseplan-category")) {
+                currentType = element.text().trim().replace(":", "");
+            } else if (element.hasClass("speiseplan-label")) {
+                final Element idElement = element.selectFirst(FEATURE_ID);
+                final String id = idElement != null ? idElement.text().trim() : "";
+                String name = element.childNodeSize() > 2 ? element.childNode(2).toString().trim() : "";
+                if (name.isEmpty() && element.childNodeSize() > 4) {
+                    name = element.childNode(4).toString().trim();
+                }
+                if (!id.isEmpty() && !name.isEmpty()) {
+                    features.put(id, new MenuItemFeature(id, name, currentType));
+                } else {
+                    log.warn("Could not parse feature " + id + " " + name + " " + currentType + " from " + element.outerHtml());
+                }
+            }
+        }
+
+        if (features.isEmpty()) {
+            log.warn("No features found");
+        } else {
+            log.info("Found {} features", features.size());
+        }
+
+        return features;
+    }
+
+    /**
+     * Splits a description like <code>Kartoffeln (Gl,Ei), Salat</code> into its ingredients. Ingredients are separated
+     * by <code>", "</code> outside of parentheses, the parentheses at the end of an ingredient contain its feature ids.
+     */
+    public static List<MenuItemIngredient> parseIngredients(String description, Map<String, MenuItemFeature> features, String menuName) {
+        final List<MenuItemIngredient> ingredients = new ArrayList<>();
+
+        int start = 0;
+        int depth = 0;
+        for (int i = 0; i < description.length(); i++) {
+            final char c = description.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && depth > 0) {
+                depth--;
+            } else if (c == ',' && depth == 0 && i + 1 < description.length() && description.charAt(i + 1) == ' ') {
+                ingredients.add(parseIngredient(description, start, i, features, menuName));
+                start = i + 2;
+                i++;
+            }
+        }
+        ingredients.add(parseIngredient(description, start, description.length(), features, menuName));
+
+        return ingredients;
+    }
+
+    private static MenuItemIngredient parseIngredient(String description, int start, int end, Map<String, MenuItemFeature> features, String menuName) {
+        // the name is everything outside of parentheses
+        final StringBuilder name = new StringBuilder(end - start);
+        int firstOpen = -1;
+        int firstClose = -1;
+        for (int i = start; i < end; i++) {
+            final char c = description.charAt(i);
+            if (c == '(') {
+                final int close = description.indexOf(')', i + 1);
+                if (close == -1 || close >= end) {
+                    name.append(description, i, end);
+                    break;
+                }
+                if (firstOpen == -1) {
+                    firstOpen = i;
+                    firstClose = close;
+                }
+                i = close;
+            } else {
+                name.append(c);
+            }
+        }
+
+        final MenuItemIngredient ingredient = new MenuItemIngredient(name.toString().trim());
+
+        // only a component that ends with a parenthesized group specifies features
+        final boolean hasFeatures = firstOpen > start && end - start > 0 && description.charAt(end - 1) == ')';
+        if (!hasFeatures) {
+            log.warn("Menu item [{}] does not specify features: {}", menuName, description.substring(start, end));
+            return ingredient;
+        }
+
+        int featureStart = firstOpen + 1;
+        for (int i = featureStart; i <= firstClose; i++) {
+            if (i == firstClose || description.charAt(i) == ',') {
+                final String featureId = description.substring(featureStart, i).trim();
+                featureStart = i + 1;
+                if (featureId.isEmpty()) {
+                    continue;
+                }
+                final MenuItemFeature feature = features.get(featureId);
+                if (feature != null) {
+                    ingredient.getFeatures().add(feature);
+                } else {
+                    log.warn("Feature not found: {}", featureId);
+                }
+            }
+        }
+
+        return ingredient;
+    }
+
+    @Getter
+    public static class Page {
+        private final String title;
+        private final Map<String, MenuItemFeature> features;
+        private final List<Table> tables;
+
+        private Page(String title, Map<String, MenuItemFeature> features, List<Table> tables) {
+            this.title = title;
+            this.features = features;
+            this.tables = tables;
+        }
+
+        /**
+         * @return the items of all menu tables on the page, assigned to the given date.
+         */
+        public List<MenuItem> getMenuItems(MenuTime date) {
+            final List<MenuItem> menuItems = new ArrayList<>();
+            for (Table table : tables) {
+                menuItems.addAll(table.getMenuItems(features, date));
+            }
+            return menuItems;
+        }
+    }
+
+    public static class Table {
+        @Getter
+        private final Element element;
+        private final List<Row> rows = new ArrayList<>();
+
+        private Table(Element element) {
+            this.element = element;
+        }
+
+        public List<MenuItem> getMenuItems(Map<String, MenuItemFeature> features, MenuTime date) {
+            final List<MenuItem> menuItems = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                if (row.name == null && row.description == null && row.price == null && row.unit == null) {
+                    // header or spacer rows
+                    continue;
+                }
+                if (row.name == null || row.description == null || row.price == null || row.unit == null) {
+                    log.error("Could not parse menu item, missing fields: {}", row.element.outerHtml());
+                    continue;
+                }
+
+                final MenuItem menuItem = new MenuItem(date);
+                menuItem.setName(row.name);
+                menuItem.setPrice(row.price);
+                menuItem.setUnit(row.unit);
+
+                if (MENUS_WITHOUT_IMAGES.contains(menuItem.getName())) {
+                    menuItem.setShouldFetchImages(false);
+                }
+
+                menuItem.getIngredients().addAll(parseIngredients(row.description, features, menuItem.getName()));
+                menuItems.add(menuItem);
+            }
+            return menuItems;
+        }
+    }
+
+    private static class Row {
+        private final Element element;
+        private String name;
+        private String description;
+        private String price;
+        private String unit;
+
+        private Row(Element element) {
+            this.element = element;
+        }
+    }
+
+    /**
+     * Collects everything in one pass over the document. The depths remember where the currently open table, row,
+     * headline and price column started, so that nested elements can be assigned without any further queries.
+     */
+    private static class PageCollector implements NodeVisitor {
+        private String title = "";
+        private final List<Element> featureContainers = new ArrayList<>();
+        private final List<Table> tables = new ArrayList<>();
+
+        private Table table;
+        private Row row;
+        private int tableDepth = -1;
+        private int rowDepth = -1;
+        private int headlineDepth = -1;
+        private int lastColumnDepth = -1;
+
+        @Override
+        public void head(Node node, int depth) {
+            if (!(node instanceof Element)) {
+                return;
+            }
+            final Element element = (Element) node;
+
+            if (element.hasClass("speiseplan-label-content")) {
+                featureContainers.add(element);
+            }
+
+            if (table == null) {
+                if (element.hasClass("speiseplan-table")) {
+                    table = new Table(element);
+                    tables.add(table);
+                    tableDepth = depth;
+                } else if (title.isEmpty() && element.normalName().equals("title")) {
+                    title = element.text();
+                }
+                return;
+            }
+
+            if (row == null) {
+                if (element.normalName().equals("tr")) {
+                    row = new Row(element);
+                    table.rows.add(row);
+                    rowDepth = depth;
+                }
+                return;
+            }
+
+            if (element.hasClass("speiseplan-table-menu-headline")) {
+                headlineDepth = depth;
+            } else if (element.hasClass("speiseplan-table-col-last")) {
+                lastColumnDepth = depth;
+            }
+
+            if (row.name == null && headlineDepth != -1 && element.normalName().equals("strong")) {
+                row.name = element.text().trim();
+            } else if (row.description == null && element.hasClass("speiseplan-table-menu-content")) {
+                row.description = element.text().trim();
+            } else if (lastColumnDepth != -1) {
+                if (row.price == null && element.hasClass("price")) {
+                    row.price = element.text().trim();
+                } else if (row.unit == null && element.hasClass("customSelection")) {
+                    row.unit = element.text().trim();
+                }
+            }
+        }
+
+        @Override
+        public void tail(Node node, int depth) {
+            if (!(node instanceof Element)) {
+                return;
+            }
+            if (depth == headlineDepth) {
+                headlineDepth = -1;
+            } else if (depth == lastColumnDepth) {
+                lastColumnDepth = -1;
+            } else if (depth == rowDepth) {
+                row = null;
+                rowDepth = -1;
+            } else if (depth == tableDepth) {
+                table = null;
+                tableDepth = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package menu.service;
+
+import lombok.extern.log4j.Log4j2;
+import menu.bot.BiteBoardProperties;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the image URLs found for a query, so that dishes that are served every week do not cost another search
+ * request (and API quota) every time.
+ * <p>
+ * Queries are looked up by their normalized form: lower case, without feature markers in parentheses, punctuation and
+ * filler words, and with the remaining words sorted, so that <code>Mensa Gericht Reis, Hähnchen (Gl)</code> and
+ * <code>Mensa Gericht Hähnchen Reis</code> share one entry. The search itself still uses the original query.<br>
+ * Entries live for <code>ttlMillis</code>, at most <code>maxEntries</code> are kept and the least recently used ones
+ * are evicted first. Empty results are not cached, since the searches also return them on errors. Concurrent misses for
+ * the same query wait for the first one instead of searching again.
+ * <p>
+ * If a file is given, every new entry is appended to it as a line of JSON and the file is read again on start, so that
+ * the entries survive restarts. Outdated lines are dropped by rewriting the file once they outnumber the live ones,
+ * which is checked on start and after every new entry.
+ */
+@Log4j2
+public class CachingImageSearch extends ImageSearcher.ImageSearch {
+
+    private static final List<String> FILLER_PHRASES = Arrays.asList("frische kräuter", "beilagensalat", "nach wahl");
+    private static final Set<String> FILLER_WORDS = new HashSet<>(Arrays.asList("mit", "und", "oder", "dazu", "an", "auf", "in", "vom", "von"));
+    private static final int MIN_COMPACTION_LINES = 100;
+
+    private final ImageSearcher.ImageSearch delegate;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final File file;
+
+    private final Map<String, CachedResult> entries;
+    private Writer writer;
+    private int fileLines;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final Map<String, CompletableFuture<List<String>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param file the file to persist the entries in, or <code>null</code> to only keep them in memory
+     */
+    public CachingImageSearch(ImageSearcher.ImageSearch delegate, long ttlMillis, int maxEntries, File file) {
+        this.delegate = delegate;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.file = file;
+        this.entries = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                if (size() > CachingImageSearch.this.maxEntries) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        if (file != null) {
+            try {
+                load();
+                if (shouldCompact()) {
+                    compact();
+                }
+                writer = openWriter();
+                log.info("Opened image search cache [{}] with {} queries", file, entries.size());
+            } catch (IOException e) {
+                log.error("Could not open the image search cache [{}], only keeping it in memory", file, e);
+                writer = null;
+            }
+        }
+    }
+
+    /**
+     * Wraps the search according to <code>imageSearchCacheTtlHours</code>, <code>imageSearchCacheMaxEntries</code> and
+     * <code>imageSearchCacheFile</code>.
+     *
+     * @return the caching search, or the given one if <code>imageSearchCacheMaxEntries</code> or the TTL is <code>0</code>
+     */
+    public static ImageSearcher.ImageSearch fromProperties(ImageSearcher.ImageSearch delegate) {
+        final long ttlHours = BiteBoardProperties.getLongProperty(BiteBoardProperties.IMAGE_SEARCH_CACHE_TTL_HOURS, 720);
+        final int maxEntries = BiteBoardProperties.getIntProperty(BiteBoardProperties.IMAGE_SEARCH_CACHE_MAX_ENTRIES, 2000);
+        if (ttlHours <= 0 || maxEntries <= 0) {
+            return delegate;
+        }
+        final String path = BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.IMAGE_SEARCH_CACHE_FILE, "").trim();
+        return new CachingImageSearch(delegate, TimeUnit.HOURS.toMillis(ttlHours), maxEntries, path.isEmpty() ? null : new File(path));
+    }
+
+    @Override
+    public List<String> searchImages(String query) throws IOException, InterruptedException {
+        final String key = normalizeQuery(query);
+        final long now = System.currentTimeMillis();
+
+        synchronized (this) {
+            final CachedResult cached = entries.get(key);
+            if (cached != null && now - cached.storedAt < ttlMillis) {
+                hitCount.incrementAndGet();
+                return cached.imageUrls;
+            }
+        }
+        missCount.incrementAndGet();
+
+        // concurrent commands for the same menu search the same dishes, only the first one sends the request
+        final CompletableFuture<List<String>> search = new CompletableFuture<>();
+        final CompletableFuture<List<String>> running = inFlight.putIfAbsent(key, search);
+        if (running != null) {
+            coalescedCount.incrementAndGet();
+            try {
+                return running.get();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("Image search failed for query: " + query, cause);
+            }
+        }
+
+        try {
+            final List<String> imageUrls = delegate.searchImages(query);
+            if (!imageUrls.isEmpty()) {
+                put(key, new CachedResult(Collections.unmodifiableList(new ArrayList<>(imageUrls)), now));
+            }
+            search.complete(imageUrls);
+            return imageUrls;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            search.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, search);
+        }
+    }
+
+    @Override
+    public ImageSearcher.ImageDisplayMode preferredImageDisplayMode() {
+        return delegate.preferredImageDisplayMode();
+    }
+
+    /**
+     * @return the query in lower case, without parenthesized feature markers, punctuation and filler words, with the
+     * remaining words sorted and without duplicates.
+     */
+    public static String normalizeQuery(String query) {
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFC).toLowerCase(Locale.GERMAN)
+                .replaceAll("\\([^)]*\\)", " ");
+        for (String phrase : FILLER_PHRASES) {
+            normalized = normalized.replace(phrase, " ");
+        }
+
+        final Set<String> words = new TreeSet<>();
+        for (String word : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty() && !FILLER_WORDS.contains(word)) {
+                words.add(word);
+            }
+        }
+        return String.join(" ", words);
+    }
+
+    private synchronized void put(String key, CachedResult result) {
+        entries.put(key, result);
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(toLine(key, result));
+            writer.write('\n');
+            writer.flush();
+            fileLines++;
+
+            if (shouldCompact()) {
+                writer.close();
+                writer = null;
+                compact();
+                writer = openWriter();
+            }
+        } catch (IOException e) {
+            log.error("Could not write to the image search cache [{}], only keeping it in memory from now on", file, e);
+            closeWriter();
+        }
+    }
+
+    private void load() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                fileLines++;
+                try {
+                    final JSONObject json = new JSONObject(line);
+                    final long storedAt = json.getLong("storedAt");
+                    if (now - storedAt >= ttlMillis) {
+                        continue;
+                    }
+                    final JSONArray urls = json.getJSONArray("imageUrls");
+                    final List<String> imageUrls = new ArrayList<>(urls.length());
+                    for (int i = 0; i < urls.length(); i++) {
+                        imageUrls.add(urls.getString(i));
+                    }
+                    entries.put(json.getString("query"), new CachedResult(Collections.unmodifiableList(imageUrls), storedAt));
+                } catch (JSONException e) {
+                    // e.g. the last line, if the process was killed while writing it
+                    log.warn("Skipping invalid line in the image search cache [{}]", file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lines of replaced, evicted and expired entries pile up in the file, it is compacted once they outnumber the live
+     * entries.
+     */
+    private boolean shouldCompact() {
+        return fileLines >= MIN_COMPACTION_LINES && fileLines > 2 * entries.size();
+    }
+
+    /**
+     * Rewrites the file with only the live entries, via a temporary file that replaces the original atomically.
+     */
+    private void compact() throws IOException {
+        final File compacted = new File(file.getPath() + ".compact");
+        final long now = System.currentTimeMillis();
+        int lines = 0;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(compacted), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, CachedResult> entry : entries.entrySet()) {
+                if (now - entry.getValue().storedAt < ttlMillis) {
+                    out.write(toLine(entry.getKey(), entry.getValue()));
+                    out.write('\n');
+                    lines++;
+                }
+            }
+        }
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Compacted image search cache [{}] from {} to {} lines", file, fileLines, lines);
+        fileLines = lines;
+    }
+
+    private Writer openWriter() throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    private static String toLine(String key, CachedResult result) {
+        return new JSONObject()
+                .put("query", key)
+                .put("storedAt", result.storedAt)
+                .put("imageUrls", new JSONArray(result.imageUrls))
+                .toString();
+    }
+
+    public synchronized void close() {
+        closeWriter();
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Could not close the image search cache [{}]", file, e);
+            }
+            writer = null;
+        }
+    }
+
+    public synchronized String describeStatistics() {
+        return "entries=" + entries.size() + ", hits=" + hitCount.get() + ", misses=" + missCount.get() + ", coalesced=" + coalescedCount.get() + ", evictions=" + evictionCount.get();
+    }
+
+    private static class CachedResult {
+        private final List<String> imageUrls;
+        private final long storedAt;
+
+        private CachedResult(List<String> imageUrls, long storedAt) {
+            this.imageUrls = imageUrls;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package menu.service;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops sending requests to a host that keeps failing, so that callers fail right away instead of each waiting for a
+ * full timeout while the host is down.
+ * <ul>
+ *     <li>{@link State#CLOSED}: requests pass, after <code>failureThreshold</code> consecutive failures the circuit opens.</li>
+ *     <li>{@link State#OPEN}: requests are rejected with a {@link CircuitOpenException} for <code>openMillis</code>.</li>
+ *     <li>{@link State#HALF_OPEN}: a single trial request is let through, its outcome closes or opens the circuit again.</li>
+ * </ul>
+ */
+@Log4j2
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    private final AtomicLong openCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param failureThreshold consecutive failures that open the circuit, <code>0</code> to never open it
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Has to be called before every request, followed by exactly one of {@link #recordSuccess()},
+     * {@link #recordFailure()} or {@link #release()}.
+     *
+     * @throws CircuitOpenException if the request must not be sent
+     */
+    public synchronized void acquire() throws CircuitOpenException {
+        if (state == State.OPEN) {
+            final long remainingMillis = openedAt + openMillis - System.currentTimeMillis();
+            if (remainingMillis > 0) {
+                rejectedCount.incrementAndGet();
+                throw new CircuitOpenException(name, remainingMillis);
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                rejectedCount.incrementAndGet();
+                throw new CircuitOpenException(name, 0);
+            }
+            trialInFlight = true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        trialInFlight = false;
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    public synchronized void recordFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failureThreshold > 0 && consecutiveFailures >= failureThreshold)) {
+            openedAt = System.currentTimeMillis();
+            openCount.incrementAndGet();
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Ends a request without an outcome, e.g. because the caller cancelled it.
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public long getOpenCount() {
+        return openCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public String describe() {
+        return name + "[state=" + getState() + ", opened=" + getOpenCount() + ", rejected=" + getRejectedCount() + "]";
+    }
+
+    private void transitionTo(State newState) {
+        if (newState == State.OPEN) {
+            log.warn("Circuit [{}] {} -> OPEN after {} consecutive failures, rejecting requests for {}ms", name, state, consecutiveFailures, openMillis);
+        } else {
+            log.info("Circuit [{}] {} -> {}", name, state, newState);
+        }
+        state = newState;
+    }
+
+    public static boolean isOpenCircuit(Throwable throwable) {
+        for (Throwable current = throwable; current != null; current = current.getCause()) {
+            if (current instanceof CircuitOpenException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public CircuitOpenException(String name, long remainingMillis) {
+            super("Circuit [" + name + "] is open" + (remainingMillis > 0 ? " for another " + remainingMillis + "ms" : ", waiting for the trial request"));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package menu.service;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Guards every request of an HTTP client with a {@link CircuitBreaker} for its host. Network errors, call timeouts and
+ * responses with a <code>5xx</code> status count as failures, requests cancelled by the caller do not count at all.<br>
+ * OkHttp cancels a call whose call timeout has expired as well, so a caller that cancels its calls has to mark them via
+ * a {@link CallerCancellation} tag to tell the two apart, as {@link SiteFetcher#enqueue} does.
+ */
+public class CircuitBreakerInterceptor implements Interceptor {
+
+    private final String clientName;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerInterceptor(String clientName, int failureThreshold, long openMillis) {
+        this.clientName = clientName;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        final String host = chain.request().url().host();
+        final CircuitBreaker breaker = breakers.computeIfAbsent(host, key -> new CircuitBreaker(clientName + "/" + key, failureThreshold, openMillis));
+
+        breaker.acquire();
+        final Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException e) {
+            if (isCancelledByCaller(chain)) {
+                breaker.release();
+            } else {
+                breaker.recordFailure();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            breaker.release();
+            throw e;
+        }
+
+        if (response.code() >= 500) {
+            breaker.recordFailure();
+        } else {
+            breaker.recordSuccess();
+        }
+        return response;
+    }
+
+    private static boolean isCancelledByCaller(Chain chain) {
+        final CallerCancellation cancellation = chain.request().tag(CallerCancellation.class);
+        return cancellation != null && cancellation.isCancelled() && chain.call().isCanceled();
+    }
+
+    public CircuitBreaker.State getState(String host) {
+        final CircuitBreaker breaker = breakers.get(host);
+        return breaker != null ? breaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    public String describeStatistics() {
+        return breakers.values().stream().map(CircuitBreaker::describe).sorted().collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Request tag that is marked before the caller cancels the call, see {@link okhttp3.Request.Builder#tag(Class, Object)}.
+     */
+    public static class CallerCancellation {
+        private volatile boolean cancelled;
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
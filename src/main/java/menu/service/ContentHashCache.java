@@ -0,0 +1,70 @@
+package menu.service;
+
+import lombok.Data;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Application-level replacement for HTTP caching of POST requests: remembers the hash of the last response body per
+ * request together with the value that was parsed from it. If the next response for that request has the same hash,
+ * the previous value is reused instead of parsing the body again.
+ *
+ * @param <T> the type parsed from the response body
+ */
+public class ContentHashCache<T> {
+
+    private final Map<String, HashedValue<T>> entries;
+
+    public ContentHashCache(int maxEntries) {
+        this.entries = new LinkedHashMap<String, HashedValue<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HashedValue<T>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the value previously parsed from a body with the same hash, or <code>null</code> if the body changed.
+     */
+    public T getIfUnchanged(String requestKey, String contentHash) {
+        final HashedValue<T> entry;
+        synchronized (entries) {
+            entry = entries.get(requestKey);
+        }
+        if (entry != null && entry.getContentHash().equals(contentHash)) {
+            SiteFetcher.getCacheStatistics().recordContentHashHit();
+            return entry.getValue();
+        }
+        SiteFetcher.getCacheStatistics().recordContentHashMiss();
+        return null;
+    }
+
+    public void put(String requestKey, String contentHash, T value) {
+        synchronized (entries) {
+            entries.put(requestKey, new HashedValue<>(contentHash, value));
+        }
+    }
+
+    public static String sha256(byte[] content) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+            final StringBuilder result = new StringBuilder();
+            for (byte b : hash) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Data
+    private static class HashedValue<T> {
+        private final String contentHash;
+        private final T value;
+    }
+}
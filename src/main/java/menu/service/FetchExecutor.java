@@ -0,0 +1,151 @@
+package menu.service;
+
+import lombok.extern.log4j.Log4j2;
+import menu.bot.BiteBoardProperties;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded executor for the blocking work of the menu providers (HTTP requests and HTML parsing), so that it does not
+ * run on the small {@link ForkJoinPool#commonPool()} shared with JDA.<br>
+ * In {@link VirtualThreads.ExecutionMode#PLATFORM} mode, this is a fixed thread pool with a bounded queue. In
+ * {@link VirtualThreads.ExecutionMode#VIRTUAL} mode, every task gets its own virtual thread, limited to as many
+ * concurrent tasks as the platform pool could hold running and queued.<br>
+ * If the limit is reached, new tasks are rejected right away with a {@link RejectedExecutionException} instead of
+ * piling up.
+ */
+@Log4j2
+public class FetchExecutor implements Executor {
+
+    private final String name;
+    private final VirtualThreads.ExecutionMode mode;
+    private final ExecutorService executor;
+    private final int maxConcurrency;
+    private final Semaphore virtualPermits;
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+
+    public FetchExecutor(String name, int threads, int queueCapacity, VirtualThreads.ExecutionMode mode) {
+        this.name = name;
+        this.mode = mode;
+
+        if (mode == VirtualThreads.ExecutionMode.VIRTUAL) {
+            this.maxConcurrency = threads + Math.max(1, queueCapacity);
+            this.virtualPermits = new Semaphore(maxConcurrency);
+            this.executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        } else {
+            this.maxConcurrency = threads;
+            this.virtualPermits = null;
+            final AtomicInteger threadCounter = new AtomicInteger();
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, name + "-" + threadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    (runnable, rejectingPool) -> reject());
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        }
+    }
+
+    public static FetchExecutor fromProperties(String name) {
+        return new FetchExecutor(name,
+                Math.max(1, BiteBoardProperties.getIntProperty(BiteBoardProperties.FETCH_EXECUTOR_THREADS, 4)),
+                BiteBoardProperties.getIntProperty(BiteBoardProperties.FETCH_EXECUTOR_QUEUE_CAPACITY, 64),
+                VirtualThreads.getConfiguredExecutionMode());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (virtualPermits == null) {
+            executor.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    completedCount.incrementAndGet();
+                }
+            });
+            return;
+        }
+
+        if (!virtualPermits.tryAcquire()) {
+            reject();
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    completedCount.incrementAndGet();
+                    virtualPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            virtualPermits.release();
+            throw e;
+        }
+    }
+
+    private void reject() {
+        rejectedCount.incrementAndGet();
+        log.warn("Rejected task on [{}], concurrency limit reached: {}", name, describeStatistics());
+        throw new RejectedExecutionException("Executor [" + name + "] is saturated");
+    }
+
+    public VirtualThreads.ExecutionMode getMode() {
+        return mode;
+    }
+
+    public int getQueueDepth() {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+    }
+
+    public int getActiveThreadCount() {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getActiveCount();
+        }
+        return maxConcurrency - virtualPermits.availablePermits();
+    }
+
+    public long getCompletedTaskCount() {
+        return completedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public String describeStatistics() {
+        return "mode=" + mode.name().toLowerCase() + ", active=" + getActiveThreadCount() + "/" + maxConcurrency + ", queued=" + getQueueDepth() +
+               ", completed=" + getCompletedTaskCount() + ", rejected=" + getRejectedCount();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        log.info("Executor [{}] shut down: {}", name, describeStatistics());
+    }
+
+    /**
+     * @return whether the given throwable or one of its causes is a rejection by a saturated executor.
+     */
+    public static boolean isRejection(Throwable throwable) {
+        for (Throwable current = throwable; current != null; current = current.getCause()) {
+            if (current instanceof RejectedExecutionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,52 @@
+package menu.service;
+
+import java.util.concurrent.*;
+
+public class FutureUtils {
+
+    private static final ScheduledExecutorService deadlineScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "future-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Java 8 replacement for <code>CompletableFuture.orTimeout</code>: the returned future completes like the given one,
+     * or exceptionally with a {@link TimeoutException} once the deadline has passed. In that case, the given future is
+     * cancelled.
+     */
+    public static <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, long timeout, TimeUnit unit) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final ScheduledFuture<?> timeoutTask = deadlineScheduler.schedule(() -> {
+            if (result.completeExceptionally(new TimeoutException("Deadline of " + unit.toMillis(timeout) + "ms passed"))) {
+                future.cancel(false);
+            }
+        }, timeout, unit);
+
+        future.whenComplete((value, error) -> {
+            timeoutTask.cancel(false);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * @return the first cause that is not a wrapper added by the {@link CompletableFuture} machinery.
+     */
+    public static Throwable unwrap(Throwable throwable) {
+        Throwable current = throwable;
+        while ((current instanceof CompletionException || current instanceof ExecutionException) && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    public static boolean isTimeout(Throwable throwable) {
+        return unwrap(throwable) instanceof TimeoutException;
+    }
+}
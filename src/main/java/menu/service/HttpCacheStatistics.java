@@ -0,0 +1,62 @@
+package menu.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for both caching layers of the {@link SiteFetcher}: the HTTP disk cache for GET requests and the content hash
+ * comparison for POST responses, which HTTP caching does not cover.
+ */
+public class HttpCacheStatistics {
+
+    private final AtomicLong httpHits = new AtomicLong();
+    private final AtomicLong httpRevalidations = new AtomicLong();
+    private final AtomicLong httpMisses = new AtomicLong();
+
+    private final AtomicLong contentHashHits = new AtomicLong();
+    private final AtomicLong contentHashMisses = new AtomicLong();
+
+    public void recordHttpHit() {
+        httpHits.incrementAndGet();
+    }
+
+    public void recordHttpRevalidation() {
+        httpRevalidations.incrementAndGet();
+    }
+
+    public void recordHttpMiss() {
+        httpMisses.incrementAndGet();
+    }
+
+    public void recordContentHashHit() {
+        contentHashHits.incrementAndGet();
+    }
+
+    public void recordContentHashMiss() {
+        contentHashMisses.incrementAndGet();
+    }
+
+    public long getHttpHits() {
+        return httpHits.get();
+    }
+
+    public long getHttpRevalidations() {
+        return httpRevalidations.get();
+    }
+
+    public long getHttpMisses() {
+        return httpMisses.get();
+    }
+
+    public long getContentHashHits() {
+        return contentHashHits.get();
+    }
+
+    public long getContentHashMisses() {
+        return contentHashMisses.get();
+    }
+
+    public String describe() {
+        return "http[hits=" + getHttpHits() + ", revalidations=" + getHttpRevalidations() + ", misses=" + getHttpMisses() + "], " +
+               "contentHash[hits=" + getContentHashHits() + ", misses=" + getContentHashMisses() + "]";
+    }
+}
@@ -27,13 +27,19 @@ public class ImageSearcher {
     }
 
     public static class GoogleImagePageSearch extends ImageSearch {
+        private final String baseUrl;
+
+        public GoogleImagePageSearch(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
         @Override
         public List<String> searchImages(String query) throws IOException {
             final String encodedQuery = URLEncoder.encode(query, "UTF-8");
-            final String url = "https://www.google.com/search?tbm=isch&q=" + encodedQuery;
+            final String url = baseUrl + "/search?tbm=isch&q=" + encodedQuery;
 
             try {
-                final Document html = SiteFetcher.performGetAndParseHtml(url);
+                final Document html = SiteFetcher.performGetAndParseHtml(SiteFetcher.ClientProfile.IMAGE_SEARCH, url);
 
                 return html.getElementsByTag("img").stream()
                         .map(element -> element.attr("src"))
@@ -54,20 +60,22 @@ public class ImageSearcher {
     public static class GoogleImageApiSearch extends ImageSearch {
         private final String apiKey;
         private final String applicationId;
+        private final String baseUrl;
 
-        public GoogleImageApiSearch(String apiKey, String applicationId) {
+        public GoogleImageApiSearch(String apiKey, String applicationId, String baseUrl) {
             this.apiKey = apiKey;
             this.applicationId = applicationId;
+            this.baseUrl = baseUrl;
         }
 
         @Override
         public List<String> searchImages(String query) throws IOException, InterruptedException {
-            final String url = "https://www.googleapis.com/customsearch/v1?key=" + apiKey +
+            final String url = baseUrl + "/customsearch/v1?key=" + apiKey +
                     "&cx=" + applicationId +
                     "&q=" + URLEncoder.encode(query, "UTF-8") +
                     "&searchType=image&imgType=photo";
 
-            final JSONObject jsonResponse = SiteFetcher.fetchJSONObject(url);
+            final JSONObject jsonResponse = SiteFetcher.fetchJSONObject(SiteFetcher.ClientProfile.IMAGE_SEARCH, url);
 
             final List<String> imageUrls = new ArrayList<>();
             final JSONArray items = jsonResponse.getJSONArray("items");
@@ -106,13 +114,14 @@ public class ImageSearcher {
         }
 
         if (menuImagePreviewService.equals("googlePage")) {
-            return new GoogleImagePageSearch();
+            return CachingImageSearch.fromProperties(new GoogleImagePageSearch(BiteBoardProperties.getBaseUrlProperty(BiteBoardProperties.GOOGLE_IMAGE_PAGE_BASE_URL, "https://www.google.com")));
         } else if (menuImagePreviewService.equals("googleApi")) {
             if (properties.containsKey(BiteBoardProperties.GOOGLE_IMAGE_API_KEY) && properties.containsKey(BiteBoardProperties.GOOGLE_IMAGE_API_APPLICATION_ID)) {
-                return new GoogleImageApiSearch(
+                return CachingImageSearch.fromProperties(new GoogleImageApiSearch(
                         properties.getProperty(BiteBoardProperties.GOOGLE_IMAGE_API_KEY),
-                        properties.getProperty(BiteBoardProperties.GOOGLE_IMAGE_API_APPLICATION_ID)
-                );
+                        properties.getProperty(BiteBoardProperties.GOOGLE_IMAGE_API_APPLICATION_ID),
+                        BiteBoardProperties.getBaseUrlProperty(BiteBoardProperties.GOOGLE_IMAGE_API_BASE_URL, "https://www.googleapis.com")
+                ));
             } else {
                 log.error("No valid Google API image search configuration found, using dummy image search. Required fields: googleImageApiKey, googleImageApiApplicationId");
             }
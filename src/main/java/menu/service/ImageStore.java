@@ -0,0 +1,210 @@
+package menu.service;
+
+import lombok.extern.log4j.Log4j2;
+import menu.bot.BiteBoardProperties;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps downloaded menu images in a local directory, so that dishes that are served again do not cost another download.
+ * <p>
+ * Every image is stored in its own file named by the hash of its URL and the height it is displayed at. Images larger
+ * than that height are stored already downscaled to it, smaller ones as the downloaded bytes. The files are read via a
+ * memory-mapped view instead of copying them onto the heap first.<br>
+ * The directory is limited to <code>maxSizeBytes</code>, the least recently used images are deleted first. The order
+ * survives restarts, as reading an image updates the modification time of its file.
+ */
+@Log4j2
+public class ImageStore {
+
+    private static final String FILE_SUFFIX = ".img";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static boolean initialized = false;
+    private static ImageStore instance;
+
+    private final File directory;
+    private final long maxSizeBytes;
+
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public ImageStore(File directory, long maxSizeBytes) throws IOException {
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create the image store directory " + directory);
+        }
+        load();
+        log.info("Opened image store [{}] with {} images in {} bytes", directory, entries.size(), totalBytes);
+    }
+
+    /**
+     * The store is opt-in via <code>imageStoreDirectory</code> and shared by all image downloads.
+     *
+     * @return the store or <code>null</code> if it is not configured or cannot be opened.
+     */
+    public static synchronized ImageStore getInstance() {
+        if (!initialized) {
+            initialized = true;
+            final String directory = BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.IMAGE_STORE_DIRECTORY, "").trim();
+            if (!directory.isEmpty()) {
+                try {
+                    instance = new ImageStore(new File(directory), BiteBoardProperties.getLongProperty(BiteBoardProperties.IMAGE_STORE_MAX_SIZE_MB, 100) * 1024 * 1024);
+                } catch (IOException e) {
+                    log.error("Could not open the image store [{}], continuing without it", directory, e);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return the stored image for the URL and height, or <code>null</code> if there is none.
+     */
+    public BufferedImage get(String url, int height) {
+        final String key = key(url, height);
+        final Long size;
+        synchronized (this) {
+            // get instead of containsKey, so that the access order is updated
+            size = entries.get(key);
+            if (size == null) {
+                missCount.incrementAndGet();
+                return null;
+            }
+        }
+
+        final File file = file(key);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final BufferedImage image = ImageUtils.decodeImage(new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())), height);
+            if (image != null) {
+                file.setLastModified(System.currentTimeMillis());
+                hitCount.incrementAndGet();
+                return image;
+            }
+            log.warn("Could not decode stored image [{}], removing it", file);
+        } catch (IOException e) {
+            log.warn("Could not read stored image [{}], removing it: {}", file, e.toString());
+        }
+        remove(key, size);
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores the image, downscaled to the given height if it is not smaller. Images that were decoded subsampled are
+     * still at least that high, so their full size bytes are never stored.
+     *
+     * @param bytes the downloaded bytes the image was decoded from
+     */
+    public void put(String url, int height, BufferedImage image, byte[] bytes) {
+        final String key = key(url, height);
+        File tempFile = null;
+        try {
+            final byte[] stored = image.getHeight() >= height ? encodeDownscaled(image, height) : bytes;
+            if (stored == null) {
+                return;
+            }
+            // unique temp file, the same image may be stored by several commands at once
+            tempFile = Files.createTempFile(directory.toPath(), key, TEMP_SUFFIX).toFile();
+            Files.write(tempFile.toPath(), stored);
+            Files.move(tempFile.toPath(), file(key).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            synchronized (this) {
+                final Long previous = entries.put(key, (long) stored.length);
+                totalBytes += stored.length - (previous != null ? previous : 0);
+                evictIfNeeded();
+            }
+        } catch (IOException e) {
+            log.warn("Could not store image from [{}]: {}", url, e.toString());
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static byte[] encodeDownscaled(BufferedImage image, int height) throws IOException {
+        final int width = Math.max(1, (int) ((double) image.getWidth() / image.getHeight() * height));
+        // JPEG has no alpha channel, transparent areas become white
+        final BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g2d = scaled.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, width, height);
+        g2d.drawImage(image, 0, 0, width, height, null);
+        g2d.dispose();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        return ImageIO.write(scaled, "jpg", out) ? out.toByteArray() : null;
+    }
+
+    /**
+     * Reads the sizes of the stored images, ordered from the least to the most recently used, and removes leftovers of
+     * interrupted writes.
+     */
+    private void load() {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            final String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                file.delete();
+            } else if (name.endsWith(FILE_SUFFIX)) {
+                entries.put(name.substring(0, name.length() - FILE_SUFFIX.length()), file.length());
+                totalBytes += file.length();
+            }
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * Removes the entry only if it still has the size that the failed read saw. Otherwise, another thread has stored the
+     * image again in the meantime, and its new file must not be deleted.
+     */
+    private synchronized void remove(String key, long size) {
+        if (entries.remove(key, size)) {
+            totalBytes -= size;
+            file(key).delete();
+        }
+    }
+
+    private void evictIfNeeded() {
+        final Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxSizeBytes && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            file(eldest.getKey()).delete();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    private File file(String key) {
+        return new File(directory, key + FILE_SUFFIX);
+    }
+
+    private static String key(String url, int height) {
+        return ContentHashCache.sha256((url + "@" + height).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public synchronized String describeStatistics() {
+        return "images=" + entries.size() + ", bytes=" + totalBytes + ", hits=" + hitCount.get() + ", misses=" + missCount.get() + ", evictions=" + evictionCount.get();
+    }
+}
@@ -1,52 +1,86 @@
 package menu.service;
 
 import lombok.extern.log4j.Log4j2;
+import menu.bot.BiteBoardProperties;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
 
 @Log4j2
 public class ImageUtils {
 
-    public static BufferedImage createCombinedImageFromQueries(ImageSearcher.ImageSearch imageSearch, List<String> imageQueries, int desiredHeight) {
-        List<String> imageUrls = imageQueries.stream()
-                .map(query -> {
-                    try {
-                        final List<String> urls = imageSearch.searchImages(query);
-                        if (urls == null || urls.isEmpty()) {
-                            log.warn("No images found for query: {}", query);
-                            return null;
-                        }
-                        return urls.get(0);
-                    } catch (IOException | InterruptedException e) {
-                        log.error("Failed to search images for query: {}", query, e);
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .filter(imageUrl -> imageUrl.startsWith("https://") || imageUrl.startsWith("http://"))
-                .collect(Collectors.toList());
+    static {
+        // ImageIO buffers streams in temporary files by default, the images are small enough to be buffered in memory
+        ImageIO.setUseCache(false);
+    }
 
-        if (imageUrls.isEmpty()) {
+    /**
+     * Searches the image of every query concurrently on the given executor and downloads the images on the dispatcher of
+     * the HTTP client. Every download gets <code>imageLoadTimeoutMillis</code> as its call timeout, the whole preview
+     * <code>imageCompositeDeadlineMillis</code>. The preview is then combined from the images that
+     * arrived until then, in the order of the queries, images that failed or are still loading are left out and their
+     * downloads are cancelled.<br>
+     * No task waits on the executor for other tasks of it, so it can be the same one that runs the rest of the preview.
+     */
+    public static CompletableFuture<BufferedImage> createCombinedImageFromQueries(ImageSearcher.ImageSearch imageSearch, List<String> imageQueries, int desiredHeight, Executor executor) {
+        final long imageTimeoutMillis = BiteBoardProperties.getLongProperty(BiteBoardProperties.IMAGE_LOAD_TIMEOUT_MILLIS, 5000);
+        final long deadlineMillis = BiteBoardProperties.getLongProperty(BiteBoardProperties.IMAGE_COMPOSITE_DEADLINE_MILLIS, 8000);
+
+        final List<CompletableFuture<BufferedImage>> futures = new ArrayList<>(imageQueries.size());
+        for (String query : imageQueries) {
+            CompletableFuture<BufferedImage> future;
+            try {
+                future = searchAndLoadImage(imageSearch, query, desiredHeight, imageTimeoutMillis, executor);
+            } catch (RejectedExecutionException e) {
+                log.warn("Skipping image for query, the image executor is saturated: {}", query);
+                future = CompletableFuture.completedFuture(null);
+            }
+            futures.add(future);
+        }
+
+        // single images that failed or did not arrive in time are left out when combining, the images are already loaded
+        // then, so combining them runs on the thread that completes the wait instead of taking another slot of the executor
+        return FutureUtils.withDeadline(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])), deadlineMillis, TimeUnit.MILLISECONDS)
+                .handle((ignored, error) -> combineImages(imageQueries, futures, desiredHeight, deadlineMillis));
+    }
+
+    private static BufferedImage combineImages(List<String> imageQueries, List<CompletableFuture<BufferedImage>> futures, int desiredHeight, long deadlineMillis) {
+        final List<BufferedImage> loadedImages = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            final CompletableFuture<BufferedImage> future = futures.get(i);
+            if (!future.isDone()) {
+                log.warn("Image for query did not arrive within the deadline of {}ms: {}", deadlineMillis, imageQueries.get(i));
+                future.cancel(true);
+                continue;
+            }
+            try {
+                final BufferedImage image = future.join();
+                if (image != null) {
+                    loadedImages.add(image);
+                }
+            } catch (CompletionException | CancellationException e) {
+                log.warn("Could not load image for query {}: {}", imageQueries.get(i), FutureUtils.unwrap(e).toString());
+            }
+        }
+
+        if (loadedImages.isEmpty()) {
             log.warn("No images found for queries: {}", imageQueries);
             return new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
         }
 
-        List<BufferedImage> loadedImages = imageUrls.stream()
-                .map(url -> {
-                    try {
-                        return SiteFetcher.fetchImageByUrl(url);
-                    } catch (IOException | InterruptedException e) {
-                        throw new RuntimeException("Failed to load image from url: " + url, e);
-                    }
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
         double totalWidth = loadedImages.stream()
                 .mapToDouble(image -> (double) image.getWidth() / image.getHeight())
                 .sum() * desiredHeight;
@@ -64,4 +98,135 @@ public class ImageUtils {
         g2d.dispose();
         return combinedImage;
     }
+
+    /**
+     * @return the image encoded as PNG, without writing it to disk
+     */
+    public static byte[] encodePng(BufferedImage image) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        if (!ImageIO.write(image, "png", out)) {
+            throw new IOException("No PNG writer available");
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Searches the image on the executor and then starts its download, unless the image is in the
+     * {@link ImageStore}. Cancelling the returned future skips the search if it has not started yet and cancels the
+     * download, so that a preview that gave up on an image does not keep its thread or connection busy.
+     *
+     * @return the first image found for the query, or <code>null</code> if there is none
+     */
+    private static CompletableFuture<BufferedImage> searchAndLoadImage(ImageSearcher.ImageSearch imageSearch, String query, int desiredHeight, long timeoutMillis, Executor executor) {
+        final CompletableFuture<BufferedImage> image = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(() -> image.isDone() ? CompletableFuture.<BufferedImage>completedFuture(null) : searchImage(imageSearch, query, desiredHeight, timeoutMillis), executor)
+                .whenComplete((load, error) -> {
+                    if (error != null) {
+                        image.completeExceptionally(FutureUtils.unwrap(error));
+                        return;
+                    }
+                    image.whenComplete((ignored, cancelled) -> {
+                        if (image.isCancelled()) {
+                            load.cancel(true);
+                        }
+                    });
+                    load.whenComplete((loaded, loadError) -> {
+                        if (loadError != null) {
+                            image.completeExceptionally(FutureUtils.unwrap(loadError));
+                        } else {
+                            image.complete(loaded);
+                        }
+                    });
+                });
+        return image;
+    }
+
+    /**
+     * @return the image from the store, or its download, or <code>null</code> if none was found
+     */
+    private static CompletableFuture<BufferedImage> searchImage(ImageSearcher.ImageSearch imageSearch, String query, int desiredHeight, long timeoutMillis) {
+        try {
+            final List<String> urls = imageSearch.searchImages(query);
+            if (urls == null || urls.isEmpty()) {
+                log.warn("No images found for query: {}", query);
+                return CompletableFuture.completedFuture(null);
+            }
+            final String url = urls.get(0);
+            if (!url.startsWith("https://") && !url.startsWith("http://")) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            final ImageStore imageStore = ImageStore.getInstance();
+            final BufferedImage stored = imageStore != null ? imageStore.get(url, desiredHeight) : null;
+            return stored != null ? CompletableFuture.completedFuture(stored) : downloadImage(url, desiredHeight, timeoutMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to search image for query: " + query, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Downloads the image and puts it into the {@link ImageStore} if it is enabled. The image is decoded on the
+     * dispatcher thread of the HTTP client that received it.
+     */
+    private static CompletableFuture<BufferedImage> downloadImage(String url, int desiredHeight, long timeoutMillis) {
+        final ImageStore imageStore = ImageStore.getInstance();
+        if (imageStore == null) {
+            return SiteFetcher.fetchImageByUrlAsync(SiteFetcher.ClientProfile.IMAGE_DOWNLOAD, url, desiredHeight, timeoutMillis);
+        }
+
+        return SiteFetcher.fetchBytesByUrlAsync(SiteFetcher.ClientProfile.IMAGE_DOWNLOAD, url, timeoutMillis).thenApply(bytes -> {
+            try {
+                final BufferedImage image = decodeImage(new ByteArrayInputStream(bytes), desiredHeight);
+                if (image != null) {
+                    imageStore.put(url, desiredHeight, image, bytes);
+                }
+                return image;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not decode the image from URL: " + url, e);
+            }
+        });
+    }
+
+    /**
+     * Decodes the image at no more than about twice the target height: the dimensions are read from the header first,
+     * then only every n-th row and column is decoded, so that a large photo never exists at full resolution in memory.
+     * Images with more than <code>imageMaxPixels</code> pixels are rejected before decoding them.
+     *
+     * @param targetHeight the height the image will be shown at, <code>0</code> to decode it at full resolution
+     * @return the image, or <code>null</code> if its format is not supported, like {@link ImageIO#read(InputStream)}
+     */
+    public static BufferedImage decodeImage(InputStream source, int targetHeight) throws IOException {
+        final long maxPixels = BiteBoardProperties.getLongProperty(BiteBoardProperties.IMAGE_MAX_PIXELS, 25_000_000);
+        try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+            if (input == null) {
+                throw new IOException("Could not open the image stream");
+            }
+            final Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            final ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                final int width = reader.getWidth(0);
+                final int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("Image of " + width + "x" + height + " pixels exceeds the limit of " + maxPixels + " pixels");
+                }
+
+                final ImageReadParam param = reader.getDefaultReadParam();
+                final int subsampling = targetHeight > 0 ? Math.max(1, height / targetHeight) : 1;
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
 }
\ No newline at end of file
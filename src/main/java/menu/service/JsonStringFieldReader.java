@@ -0,0 +1,237 @@
+package menu.service;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the value of a single top-level string field of a JSON object as a stream of characters, decoding the escape
+ * sequences on the fly. This allows passing for example the HTML <code>content</code> of a JSON response straight into
+ * a parser, without first building the whole body, the JSON object and the field value as separate strings.<br>
+ * Other fields are skipped. If the field does not exist or is not a string, reading fails with an {@link IOException}.
+ * <p>
+ * The source is read in chunks into a local buffer, the escapes are decoded from there and the runs of plain characters
+ * in between are copied as a whole, instead of reading every character on its own through the (synchronized) source.
+ */
+public class JsonStringFieldReader extends Reader {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final Reader in;
+    private final String fieldName;
+
+    private final char[] chunk = new char[CHUNK_SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    private boolean positioned = false;
+    private boolean finished = false;
+
+    public JsonStringFieldReader(Reader in, String fieldName) {
+        this.in = in;
+        this.fieldName = fieldName;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (!positioned) {
+            positionAtFieldValue();
+            positioned = true;
+        }
+        if (finished) {
+            return -1;
+        }
+        if (length == 0) {
+            return 0;
+        }
+
+        int count = 0;
+        while (count < length) {
+            if (position == limit && !fill()) {
+                throw new IOException("Unexpected end of JSON in string field [" + fieldName + "]");
+            }
+
+            // copy everything up to the next quote or escape at once
+            final int end = Math.min(limit, position + length - count);
+            int plainEnd = position;
+            while (plainEnd < end && chunk[plainEnd] != '"' && chunk[plainEnd] != '\\') {
+                plainEnd++;
+            }
+            System.arraycopy(chunk, position, buffer, offset + count, plainEnd - position);
+            count += plainEnd - position;
+            position = plainEnd;
+
+            if (plainEnd < end) {
+                if (chunk[position++] == '"') {
+                    finished = true;
+                    break;
+                }
+                buffer[offset + count++] = readEscaped();
+            }
+        }
+        return count == 0 && finished ? -1 : count;
+    }
+
+    /**
+     * @return <code>false</code> if the source has ended
+     */
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = in.read(chunk, 0, chunk.length);
+        } while (read == 0);
+        if (read == -1) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private int next() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return chunk[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return chunk[position];
+    }
+
+    /**
+     * Walks the top-level object until the value of the requested field starts, skipping all other values.
+     */
+    private void positionAtFieldValue() throws IOException {
+        if (nextNonWhitespace() != '{') {
+            throw new IOException("Expected a JSON object");
+        }
+
+        while (true) {
+            int c = nextNonWhitespace();
+            if (c == '}') {
+                throw new IOException("JSON object has no field [" + fieldName + "]");
+            }
+            if (c == ',') {
+                c = nextNonWhitespace();
+            }
+            if (c != '"') {
+                throw new IOException("Expected a field name in JSON object");
+            }
+            final String name = readString();
+            if (nextNonWhitespace() != ':') {
+                throw new IOException("Expected ':' after JSON field name [" + name + "]");
+            }
+
+            final int valueStart = nextNonWhitespace();
+            if (name.equals(fieldName)) {
+                if (valueStart != '"') {
+                    throw new IOException("JSON field [" + fieldName + "] is not a string");
+                }
+                return;
+            }
+            skipValue(valueStart);
+        }
+    }
+
+    private void skipValue(int first) throws IOException {
+        if (first == '"') {
+            skipString();
+            return;
+        }
+        if (first != '{' && first != '[') {
+            // number, boolean or null: skip until the next delimiter, which then has to be handled by the caller
+            int c;
+            while ((c = peek()) != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+                position++;
+            }
+            return;
+        }
+
+        int depth = 1;
+        while (depth > 0) {
+            final int c = next();
+            if (c == -1) {
+                throw new IOException("Unexpected end of JSON");
+            } else if (c == '"') {
+                skipString();
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        int c;
+        while ((c = next()) != '"') {
+            if (c == -1) {
+                throw new IOException("Unexpected end of JSON in string");
+            }
+            if (c == '\\') {
+                readEscaped();
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        int c;
+        while ((c = next()) != '"') {
+            if (c == -1) {
+                throw new IOException("Unexpected end of JSON in string");
+            }
+            builder.append(c == '\\' ? readEscaped() : (char) c);
+        }
+        return builder.toString();
+    }
+
+    private char readEscaped() throws IOException {
+        final int c = next();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    final int digit = Character.digit(next(), 16);
+                    if (digit < 0) {
+                        throw new IOException("Invalid unicode escape in JSON string");
+                    }
+                    value = (value << 4) | digit;
+                }
+                // surrogate pairs arrive as two escapes and are passed on as two chars, just like in a Java string
+                return (char) value;
+            default:
+                throw new IOException("Invalid escape sequence in JSON string: \\" + (char) c);
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = next();
+        } while (c != -1 && Character.isWhitespace(c));
+        return c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,113 @@
+package menu.service;
+
+import lombok.extern.log4j.Log4j2;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Limits how many requests an HTTP client sends to the same host per second with a {@link TokenBucket} per host, so that
+ * bursts of commands and scheduled menus do not hit an upstream all at once.<br>
+ * Requests over the limit wait for their turn instead of being dropped. Only if the wait would exceed
+ * <code>maxWaitMillis</code>, they fail right away with a {@link RateLimitExceededException}.
+ * <p>
+ * The wait blocks the thread that executes the call, for asynchronous calls one of the dispatcher threads, and the call
+ * keeps its slot of the dispatcher's <code>maxRequests</code> meanwhile. It is therefore bounded by
+ * <code>maxWaitMillis</code> and ends within {@value #CANCEL_CHECK_INTERVAL_MILLIS}ms once the call is cancelled or
+ * times out.
+ */
+@Log4j2
+public class RateLimitInterceptor implements Interceptor {
+
+    private static final long CANCEL_CHECK_INTERVAL_MILLIS = 100;
+
+    private final String clientName;
+    private final double permitsPerSecond;
+    private final double burst;
+    private final long maxWaitMillis;
+    private final Map<String, HostLimit> limits = new ConcurrentHashMap<>();
+
+    /**
+     * @param permitsPerSecond requests per second and host, <code>0</code> or less to not limit them
+     */
+    public RateLimitInterceptor(String clientName, double permitsPerSecond, double burst, long maxWaitMillis) {
+        this.clientName = clientName;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        if (permitsPerSecond <= 0) {
+            return chain.proceed(chain.request());
+        }
+
+        final String host = chain.request().url().host();
+        final HostLimit limit = limits.computeIfAbsent(host, key -> new HostLimit(new TokenBucket(permitsPerSecond, burst)));
+
+        final long waitMillis = limit.bucket.reserve(maxWaitMillis);
+        if (waitMillis < 0) {
+            limit.rejectedCount.incrementAndGet();
+            log.warn("Rate limit of [{}/{}] exceeded, a request would have to wait more than {}ms", clientName, host, maxWaitMillis);
+            throw new RateLimitExceededException(clientName + "/" + host, maxWaitMillis);
+        }
+        limit.waitTimes.record(waitMillis);
+
+        waitUnlessCanceled(chain, waitMillis, "for the rate limit of " + host);
+
+        return chain.proceed(chain.request());
+    }
+
+    /**
+     * Sleeps for the given time, but checks every {@value #CANCEL_CHECK_INTERVAL_MILLIS}ms whether the call has been
+     * cancelled (which includes its call timeout), so that a waiting call does not hold its thread any longer than that.
+     *
+     * @param reason what is waited for, as part of the exception messages
+     */
+    static void waitUnlessCanceled(Chain chain, long waitMillis, String reason) throws IOException {
+        final long until = System.currentTimeMillis() + waitMillis;
+        try {
+            for (long remaining = waitMillis; remaining > 0; remaining = until - System.currentTimeMillis()) {
+                if (chain.call().isCanceled()) {
+                    throw new IOException("Canceled while waiting " + reason);
+                }
+                Thread.sleep(Math.min(remaining, CANCEL_CHECK_INTERVAL_MILLIS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting " + reason);
+        }
+    }
+
+    public String describeStatistics() {
+        return limits.entrySet().stream()
+                .map(entry -> clientName + "/" + entry.getKey() + "[rejected=" + entry.getValue().rejectedCount.get() + ", waits={" + entry.getValue().waitTimes.describe() + "}]")
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static class HostLimit {
+        private final TokenBucket bucket;
+        private final WaitTimeHistogram waitTimes = new WaitTimeHistogram();
+        private final AtomicLong rejectedCount = new AtomicLong();
+
+        private HostLimit(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    public static class RateLimitExceededException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public RateLimitExceededException(String name, long maxWaitMillis) {
+            super("Rate limit of [" + name + "] exceeded, the request would have to wait more than " + maxWaitMillis + "ms");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package menu.service;
+
+import lombok.extern.log4j.Log4j2;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retries idempotent requests that failed with a network error, a <code>5xx</code> or a <code>429</code> status.
+ * The delay between attempts grows exponentially from <code>baseDelayMillis</code> up to <code>maxDelayMillis</code>,
+ * with a random jitter of up to half the delay so that the clients of several guilds do not retry in lockstep.<br>
+ * Requests rejected by an open {@link CircuitBreaker} or an exceeded {@link RateLimitInterceptor} are not retried.
+ * All attempts together are still bounded by the call timeout of the client.
+ * <p>
+ * The delay blocks the thread that executes the call, for asynchronous calls one of the dispatcher threads, and the
+ * call keeps its slot of the dispatcher's <code>maxRequests</code> meanwhile. It is bounded by
+ * <code>maxDelayMillis</code> and ends early once the call is cancelled or times out.
+ */
+@Log4j2
+public class RetryInterceptor implements Interceptor {
+
+    /**
+     * Tag for requests that are safe to repeat despite not being <code>GET</code> or <code>HEAD</code>, see
+     * {@link Request.Builder#tag(Class, Object)}.
+     */
+    public enum Idempotent {
+        INSTANCE
+    }
+
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong exhaustedCount = new AtomicLong();
+
+    public RetryInterceptor(int maxRetries, long baseDelayMillis, long maxDelayMillis) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        final Request request = chain.request();
+        if (maxRetries <= 0 || !isIdempotent(request)) {
+            return chain.proceed(request);
+        }
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                final Response response = chain.proceed(request);
+                if (!isRetryable(response)) {
+                    return response;
+                }
+                if (attempt >= maxRetries) {
+                    exhaustedCount.incrementAndGet();
+                    return response;
+                }
+                log.warn("Attempt {} of {} to [{}] answered with {}, retrying", attempt + 1, maxRetries + 1, request.url(), response.code());
+                response.close();
+            } catch (CircuitBreaker.CircuitOpenException | RateLimitInterceptor.RateLimitExceededException e) {
+                throw e;
+            } catch (IOException e) {
+                if (chain.call().isCanceled()) {
+                    throw e;
+                }
+                if (attempt >= maxRetries) {
+                    exhaustedCount.incrementAndGet();
+                    throw e;
+                }
+                log.warn("Attempt {} of {} to [{}] failed, retrying: {}", attempt + 1, maxRetries + 1, request.url(), e.toString());
+            }
+
+            retryCount.incrementAndGet();
+            RateLimitInterceptor.waitUnlessCanceled(chain, backoffMillis(attempt), "to retry " + request.url());
+        }
+    }
+
+    private long backoffMillis(int attempt) {
+        final long delay = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private static boolean isIdempotent(Request request) {
+        return "GET".equals(request.method()) || "HEAD".equals(request.method()) || request.tag(Idempotent.class) != null;
+    }
+
+    private static boolean isRetryable(Response response) {
+        return response.code() >= 500 || response.code() == 429;
+    }
+
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+
+    public String describeStatistics() {
+        return "retries=" + getRetryCount() + ", exhausted=" + getExhaustedCount();
+    }
+}
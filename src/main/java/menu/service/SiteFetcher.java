@@ -1,23 +1,181 @@
 package menu.service;
 
+import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
+import menu.bot.BiteBoardProperties;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Log4j2
 public class SiteFetcher {
-    private static final OkHttpClient client = new OkHttpClient();
 
-    public static Document performGetAndParseHtml(String url) throws IOException {
+    /**
+     * Every profile gets its own HTTP client with its own dispatcher, connection pool, timeouts and response size limit,
+     * so that slow image searches or large image downloads can never take away the slots of the menu requests.<br>
+     * Each limit can be configured per profile (e.g. <code>httpImageDownloadMaxRequests</code>), falls back to the
+     * general property (e.g. <code>httpMaxRequests</code>) and then to the default of the profile.<br>
+     * The same applies to the retries, the per-host rate limits and the per-host circuit breakers of each client, see
+     * {@link RetryInterceptor}, {@link RateLimitInterceptor} and {@link CircuitBreakerInterceptor}. Image downloads are
+     * not rate limited by default, the images of a preview come from many different hosts and are capped by their own
+     * deadline already.
+     */
+    @Getter
+    public enum ClientProfile {
+        MENU_API("MenuApi", 16, 4, 2, 15, 2 * 1024 * 1024, 5),
+        IMAGE_SEARCH("ImageSearch", 16, 4, 2, 10, 2 * 1024 * 1024, 5),
+        IMAGE_DOWNLOAD("ImageDownload", 32, 4, 4, 10, 10 * 1024 * 1024, 0);
+
+        private final String propertyInfix;
+        private final int defaultMaxRequests;
+        private final int defaultMaxRequestsPerHost;
+        private final int defaultMaxIdleConnections;
+        private final long defaultCallTimeoutSeconds;
+        private final long defaultMaxResponseBytes;
+        private final long defaultRateLimitPerSecond;
+
+        ClientProfile(String propertyInfix, int defaultMaxRequests, int defaultMaxRequestsPerHost, int defaultMaxIdleConnections, long defaultCallTimeoutSeconds, long defaultMaxResponseBytes, long defaultRateLimitPerSecond) {
+            this.propertyInfix = propertyInfix;
+            this.defaultMaxRequests = defaultMaxRequests;
+            this.defaultMaxRequestsPerHost = defaultMaxRequestsPerHost;
+            this.defaultMaxIdleConnections = defaultMaxIdleConnections;
+            this.defaultCallTimeoutSeconds = defaultCallTimeoutSeconds;
+            this.defaultMaxResponseBytes = defaultMaxResponseBytes;
+            this.defaultRateLimitPerSecond = defaultRateLimitPerSecond;
+        }
+
+        private long getLongProperty(String generalKey, long defaultValue) {
+            final String profileKey = "http" + propertyInfix + generalKey.substring("http".length());
+            return BiteBoardProperties.getLongProperty(profileKey, BiteBoardProperties.getLongProperty(generalKey, defaultValue));
+        }
+
+        public long getCallTimeoutMillis() {
+            return TimeUnit.SECONDS.toMillis(getLongProperty(BiteBoardProperties.HTTP_CALL_TIMEOUT_SECONDS, defaultCallTimeoutSeconds));
+        }
+
+        public long getMaxResponseBytes() {
+            return getLongProperty(BiteBoardProperties.HTTP_MAX_RESPONSE_BYTES, defaultMaxResponseBytes);
+        }
+    }
+
+    private static final Map<ClientProfile, OkHttpClient> clients = new EnumMap<>(ClientProfile.class);
+    private static final Map<ClientProfile, RetryInterceptor> retryInterceptors = new EnumMap<>(ClientProfile.class);
+    private static final Map<ClientProfile, RateLimitInterceptor> rateLimiters = new EnumMap<>(ClientProfile.class);
+    private static final Map<ClientProfile, CircuitBreakerInterceptor> circuitBreakers = new EnumMap<>(ClientProfile.class);
+    private static final HttpCacheStatistics cacheStatistics = new HttpCacheStatistics();
+    private static Cache httpCache;
+    private static boolean httpCacheInitialized = false;
+
+    private static synchronized OkHttpClient client(ClientProfile profile) {
+        return clients.computeIfAbsent(profile, SiteFetcher::createClient);
+    }
+
+    public static HttpCacheStatistics getCacheStatistics() {
+        return cacheStatistics;
+    }
+
+    public static synchronized String describeResilienceStatistics() {
+        final StringBuilder builder = new StringBuilder();
+        for (ClientProfile profile : clients.keySet()) {
+            if (builder.length() > 0) {
+                builder.append("; ");
+            }
+            builder.append(profile).append("[").append(retryInterceptors.get(profile).describeStatistics())
+                    .append(", rateLimits=[").append(rateLimiters.get(profile).describeStatistics())
+                    .append("], circuits=[").append(circuitBreakers.get(profile).describeStatistics()).append("]]");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The disk cache is opt-in via <code>httpCacheDirectory</code> and shared by all clients, as OkHttp does not allow
+     * several caches on the same directory. Responses with an <code>ETag</code> or <code>Last-Modified</code> header are
+     * revalidated with conditional requests once they are stale.
+     */
+    private static synchronized Cache getHttpCache() {
+        if (!httpCacheInitialized) {
+            httpCacheInitialized = true;
+            final String directory = BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.HTTP_CACHE_DIRECTORY, "").trim();
+            if (!directory.isEmpty()) {
+                final long maxSizeBytes = BiteBoardProperties.getLongProperty(BiteBoardProperties.HTTP_CACHE_MAX_SIZE_MB, 50) * 1024 * 1024;
+                httpCache = new Cache(new File(directory), maxSizeBytes);
+                log.info("Using HTTP disk cache in [{}] with up to {} bytes", directory, maxSizeBytes);
+            }
+        }
+        return httpCache;
+    }
+
+    private static Response recordCacheUsage(Interceptor.Chain chain) throws IOException {
+        final Response response = chain.proceed(chain.request());
+        if (response.cacheResponse() != null && response.networkResponse() == null) {
+            cacheStatistics.recordHttpHit();
+        } else if (response.cacheResponse() != null) {
+            cacheStatistics.recordHttpRevalidation();
+        } else if ("GET".equals(chain.request().method())) {
+            cacheStatistics.recordHttpMiss();
+        }
+        return response;
+    }
+
+    private static OkHttpClient createClient(ClientProfile profile) {
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests((int) profile.getLongProperty(BiteBoardProperties.HTTP_MAX_REQUESTS, profile.getDefaultMaxRequests()));
+        dispatcher.setMaxRequestsPerHost((int) profile.getLongProperty(BiteBoardProperties.HTTP_MAX_REQUESTS_PER_HOST, profile.getDefaultMaxRequestsPerHost()));
+
+        final OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool((int) profile.getLongProperty(BiteBoardProperties.HTTP_MAX_IDLE_CONNECTIONS, profile.getDefaultMaxIdleConnections()), 5, TimeUnit.MINUTES))
+                .callTimeout(profile.getCallTimeoutMillis(), TimeUnit.MILLISECONDS);
+
+        // the rate limit and the circuit breaker are network interceptors, so that only requests that actually reach the
+        // host are limited and counted, while responses from the HTTP cache are served even if the circuit is open.
+        // Retries have to stay an application interceptor, as a network interceptor may only proceed once. They wrap
+        // the cache and the network interceptors, so that every attempt is limited and checked against the circuit,
+        // while an open circuit or an exceeded rate limit end the retries
+        final RetryInterceptor retryInterceptor = new RetryInterceptor(
+                (int) profile.getLongProperty(BiteBoardProperties.HTTP_MAX_RETRIES, 2),
+                profile.getLongProperty(BiteBoardProperties.HTTP_RETRY_BASE_DELAY_MILLIS, 200),
+                profile.getLongProperty(BiteBoardProperties.HTTP_RETRY_MAX_DELAY_MILLIS, 2000));
+        final CircuitBreakerInterceptor circuitBreaker = new CircuitBreakerInterceptor(profile.getPropertyInfix(),
+                (int) profile.getLongProperty(BiteBoardProperties.HTTP_CIRCUIT_FAILURE_THRESHOLD, 5),
+                TimeUnit.SECONDS.toMillis(profile.getLongProperty(BiteBoardProperties.HTTP_CIRCUIT_OPEN_SECONDS, 30)));
+        final long rateLimitPerSecond = profile.getLongProperty(BiteBoardProperties.HTTP_RATE_LIMIT_PER_SECOND, profile.getDefaultRateLimitPerSecond());
+        final RateLimitInterceptor rateLimiter = new RateLimitInterceptor(profile.getPropertyInfix(), rateLimitPerSecond,
+                profile.getLongProperty(BiteBoardProperties.HTTP_RATE_LIMIT_BURST, Math.max(1, rateLimitPerSecond)),
+                profile.getLongProperty(BiteBoardProperties.HTTP_RATE_LIMIT_MAX_WAIT_MILLIS, 5000));
+        retryInterceptors.put(profile, retryInterceptor);
+        rateLimiters.put(profile, rateLimiter);
+        circuitBreakers.put(profile, circuitBreaker);
+        builder.addInterceptor(retryInterceptor).addNetworkInterceptor(rateLimiter).addNetworkInterceptor(circuitBreaker);
+
+        final Cache cache = getHttpCache();
+        if (cache != null) {
+            builder.cache(cache).addInterceptor(SiteFetcher::recordCacheUsage);
+        }
+
+        final OkHttpClient client = builder.build();
+
+        log.info("Created HTTP client [{}]: maxRequests={}, maxRequestsPerHost={}, callTimeout={}ms, maxResponseBytes={}, maxRetries={}, rateLimitPerSecond={}, circuitFailureThreshold={}",
+                profile, dispatcher.getMaxRequests(), dispatcher.getMaxRequestsPerHost(), profile.getCallTimeoutMillis(), profile.getMaxResponseBytes(),
+                profile.getLongProperty(BiteBoardProperties.HTTP_MAX_RETRIES, 2), rateLimitPerSecond, profile.getLongProperty(BiteBoardProperties.HTTP_CIRCUIT_FAILURE_THRESHOLD, 5));
+        return client;
+    }
+
+    public static Document performGetAndParseHtml(ClientProfile profile, String url) throws IOException {
         try {
             final Request request = new Request.Builder()
                     .url(url)
@@ -25,36 +183,41 @@ public class SiteFetcher {
 
             log.info("[GET/Document] Fetching from URL: {}", request);
 
-            final String html;
-            try (Response response = client.newCall(request).execute()) {
-                html = response.body().string();
+            try (Response response = execute(profile, request)) {
+                return parseHtml(response, profile);
             }
-            return Jsoup.parse(html);
         } catch (IOException e) {
             throw new IOException("[GET/Document] Could not load or parse the URL: " + url, e);
         }
     }
 
-    public static Document performPostAndParseHtml(String url, RequestBody requestBody, Headers headers, Function<String, String> responseTransformer) throws IOException {
+    public static Document performPostAndParseHtml(ClientProfile profile, String url, RequestBody requestBody, Headers headers) throws IOException {
         try {
-            final Headers.Builder headersBuilder = new Headers.Builder()
-                    .add("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64; rv:124.0) Gecko/20100101 Firefox/124.0");
+            final Request request = buildPostRequest(url, requestBody, headers);
+
+            log.info("[POST/Document] Fetching from URL: {}", request);
 
-            if (headers != null) {
-                headersBuilder.addAll(headers);
+            try (Response response = execute(profile, request)) {
+                return parseHtml(response, profile);
             }
+        } catch (IOException e) {
+            throw new IOException("[POST/Document] Could not load or parse the URL: " + url, e);
+        }
+    }
 
-            final Request request = new Request.Builder()
-                    .url(url)
-                    .post(requestBody)
-                    .headers(headersBuilder.build())
-                    .build();
+    /**
+     * Unlike {@link #performPostAndParseHtml(ClientProfile, String, RequestBody, Headers)}, this has to read the whole
+     * body into a string first so that it can be transformed, only use it if the transformation is actually needed.
+     */
+    public static Document performPostAndParseHtml(ClientProfile profile, String url, RequestBody requestBody, Headers headers, Function<String, String> responseTransformer) throws IOException {
+        try {
+            final Request request = buildPostRequest(url, requestBody, headers);
 
             log.info("[POST/Document] Fetching from URL: {}", request);
 
             final String html;
-            try (Response response = client.newCall(request).execute()) {
-                html = response.body().string();
+            try (Response response = execute(profile, request)) {
+                html = readBodyString(response, profile);
             }
             final String transformed = responseTransformer.apply(html);
             return Jsoup.parse(transformed);
@@ -63,57 +226,292 @@ public class SiteFetcher {
         }
     }
 
-    public static JSONObject fetchJSONObject(String url) throws IOException {
+    public static JSONObject fetchJSONObject(ClientProfile profile, String url) throws IOException {
         try {
             final Request request = new Request.Builder()
                     .url(url)
                     .build();
 
-            try (Response response = client.newCall(request).execute()) {
-                String jsonString = response.body().string();
-                return new JSONObject(jsonString);
+            try (Response response = execute(profile, request)) {
+                return new JSONObject(new JSONTokener(openBodyReader(response, profile)));
             }
         } catch (IOException e) {
             throw new IOException("[GET/JSONObject] Could not fetch JSON from URL: " + url, e);
         }
     }
 
-    public static JSONArray fetchJSONArray(String url) throws IOException {
+    public static JSONArray fetchJSONArray(ClientProfile profile, String url) throws IOException {
         try {
             final Request request = new Request.Builder()
                     .url(url)
                     .build();
 
-            try (Response response = client.newCall(request).execute()) {
-                String jsonString = response.body().string();
-                return new JSONArray(jsonString);
+            try (Response response = execute(profile, request)) {
+                return new JSONArray(new JSONTokener(openBodyReader(response, profile)));
             }
         } catch (IOException e) {
             throw new IOException("[GET/JSONArray] Could not fetch JSON from URL: " + url, e);
         }
     }
 
-    public static BufferedImage fetchImageByUrl(String url) throws IOException, InterruptedException {
+    /**
+     * Decodes the image while it arrives, subsampled to about the target height, see {@link ImageUtils#decodeImage}.
+     *
+     * @param targetHeight the height the image will be shown at, <code>0</code> to decode it at full resolution
+     */
+    public static BufferedImage fetchImageByUrl(ClientProfile profile, String url, int targetHeight) throws IOException, InterruptedException {
         try {
             final Request request = new Request.Builder()
                     .url(url)
                     .build();
 
-            final byte[] imageBytes;
-            try (Response response = client.newCall(request).execute()) {
-                imageBytes = response.body().bytes();
+            try (Response response = execute(profile, request)) {
+                return ImageUtils.decodeImage(openBodyStream(response, profile), targetHeight);
             }
-            return bytesToImage(imageBytes);
         } catch (IOException e) {
             throw new IOException("[GET/BufferedImage] Could not load the image from URL: " + url, e);
         }
     }
 
-    private static BufferedImage bytesToImage(byte[] imageBytes) {
+    public static CompletableFuture<Document> performGetAndParseHtmlAsync(ClientProfile profile, String url, long timeoutMillis) {
+        final Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        log.info("[GET/Document/async] Fetching from URL: {}", request);
+        return enqueue(profile, request, timeoutMillis, "[GET/Document]", response -> parseHtml(response, profile));
+    }
+
+    public static CompletableFuture<Document> performPostAndParseHtmlAsync(ClientProfile profile, String url, RequestBody requestBody, Headers headers, Function<String, String> responseTransformer, long timeoutMillis) {
+        final Request request = buildPostRequest(url, requestBody, headers);
+
+        log.info("[POST/Document/async] Fetching from URL: {}", request);
+        return enqueue(profile, request, timeoutMillis, "[POST/Document]", response -> Jsoup.parse(responseTransformer.apply(readBodyString(response, profile))));
+    }
+
+    /**
+     * Performs the POST request and returns the raw response body, for callers that want to check the content before
+     * parsing it, see {@link ContentHashCache}.
+     */
+    public static CompletableFuture<byte[]> performPostAsync(ClientProfile profile, String url, RequestBody requestBody, Headers headers, long timeoutMillis) {
+        final Request request = buildPostRequest(url, requestBody, headers);
+
+        log.info("[POST/bytes/async] Fetching from URL: {}", request);
+        return enqueue(profile, request, timeoutMillis, "[POST/bytes]", response -> readBodyBytes(response, profile));
+    }
+
+    public static CompletableFuture<JSONObject> fetchJSONObjectAsync(ClientProfile profile, String url, long timeoutMillis) {
+        final Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        return enqueue(profile, request, timeoutMillis, "[GET/JSONObject]", response -> new JSONObject(new JSONTokener(openBodyReader(response, profile))));
+    }
+
+    public static CompletableFuture<BufferedImage> fetchImageByUrlAsync(ClientProfile profile, String url, int targetHeight, long timeoutMillis) {
+        final Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        return enqueue(profile, request, timeoutMillis, "[GET/BufferedImage]", response -> ImageUtils.decodeImage(openBodyStream(response, profile), targetHeight));
+    }
+
+    /**
+     * Downloads the raw image bytes, for callers that keep them, see {@link ImageStore}.
+     */
+    public static CompletableFuture<byte[]> fetchBytesByUrlAsync(ClientProfile profile, String url, long timeoutMillis) {
+        final Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        return enqueue(profile, request, timeoutMillis, "[GET/bytes]", response -> readBodyBytes(response, profile));
+    }
+
+    /**
+     * Runs the request on the OkHttp dispatcher of the given profile instead of blocking the calling thread.
+     * The timeout covers the whole call including reading the body, cancelling the returned future cancels the call.
+     *
+     * @param timeoutMillis timeout of the whole call, <code>0</code> to use the timeout of the profile
+     * @param handler       converts the response, runs on the dispatcher thread, the response is closed afterward
+     */
+    public static <T> CompletableFuture<T> enqueue(ClientProfile profile, Request request, long timeoutMillis, String logTag, ResponseHandler<T> handler) {
+        // tells the circuit breaker that a cancelled call was not a timeout
+        final CircuitBreakerInterceptor.CallerCancellation cancellation = new CircuitBreakerInterceptor.CallerCancellation();
+        final Call call = client(profile).newCall(request.newBuilder().tag(CircuitBreakerInterceptor.CallerCancellation.class, cancellation).build());
+        if (timeoutMillis > 0) {
+            call.timeout().timeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                cancellation.cancel();
+                call.cancel();
+            }
+        });
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call failedCall, IOException e) {
+                future.completeExceptionally(new IOException(logTag + " Could not load the URL: " + request.url(), e));
+            }
+
+            @Override
+            public void onResponse(Call successfulCall, Response response) {
+                try (Response closeable = response) {
+                    requireSuccessful(closeable);
+                    future.complete(handler.handle(closeable));
+                } catch (Exception e) {
+                    future.completeExceptionally(new IOException(logTag + " Could not load or parse the URL: " + request.url(), e));
+                }
+            }
+        });
+
+        return future;
+    }
+
+    private static Response execute(ClientProfile profile, Request request) throws IOException {
+        final Response response = client(profile).newCall(request).execute();
         try {
-            return ImageIO.read(new ByteArrayInputStream(imageBytes));
+            requireSuccessful(response);
         } catch (IOException e) {
-            throw new RuntimeException("Could not convert image bytes to BufferedImage", e);
+            response.close();
+            throw e;
+        }
+        return response;
+    }
+
+    /**
+     * Error pages are not worth parsing, they would only fail later with a less helpful message.
+     */
+    private static void requireSuccessful(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("Server answered with status " + response.code());
+        }
+    }
+
+    @FunctionalInterface
+    public interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    private static Request buildPostRequest(String url, RequestBody requestBody, Headers headers) {
+        final Headers.Builder headersBuilder = new Headers.Builder()
+                .add("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64; rv:124.0) Gecko/20100101 Firefox/124.0");
+
+        if (headers != null) {
+            headersBuilder.addAll(headers);
+        }
+
+        // the bot only ever POSTs to query menus, so these requests can safely be retried
+        return new Request.Builder()
+                .url(url)
+                .post(requestBody)
+                .headers(headersBuilder.build())
+                .tag(RetryInterceptor.Idempotent.class, RetryInterceptor.Idempotent.INSTANCE)
+                .build();
+    }
+
+    /**
+     * Reads the response body, but fails as soon as it exceeds the maximum response size of the profile instead of
+     * buffering it completely.
+     */
+    public static byte[] readBodyBytes(Response response, ClientProfile profile) throws IOException {
+        final ResponseBody body = response.body();
+        final long maxBytes = profile.getMaxResponseBytes();
+        if (body.contentLength() > maxBytes) {
+            throw new IOException("Response of " + body.contentLength() + " bytes exceeds the limit of " + maxBytes + " bytes for " + profile);
+        }
+
+        final BufferedSource source = body.source();
+        if (source.request(maxBytes + 1)) {
+            throw new IOException("Response exceeds the limit of " + maxBytes + " bytes for " + profile);
+        }
+        return source.readByteArray();
+    }
+
+    public static String readBodyString(Response response, ClientProfile profile) throws IOException {
+        return new String(readBodyBytes(response, profile), bodyCharset(response));
+    }
+
+    /**
+     * Opens the response body as a stream that is consumed while it arrives, without buffering it completely first.
+     * Reading fails as soon as more than the maximum response size of the profile has been read.
+     */
+    public static InputStream openBodyStream(Response response, ClientProfile profile) throws IOException {
+        final ResponseBody body = response.body();
+        final long maxBytes = profile.getMaxResponseBytes();
+        if (body.contentLength() > maxBytes) {
+            throw new IOException("Response of " + body.contentLength() + " bytes exceeds the limit of " + maxBytes + " bytes for " + profile);
+        }
+        return new LimitedInputStream(body.byteStream(), maxBytes, profile);
+    }
+
+    public static Reader openBodyReader(Response response, ClientProfile profile) throws IOException {
+        return new InputStreamReader(openBodyStream(response, profile), bodyCharset(response));
+    }
+
+    /**
+     * Parses the body straight from the network stream. If the response does not declare a charset, Jsoup detects it
+     * from the document itself.
+     */
+    private static Document parseHtml(Response response, ClientProfile profile) throws IOException {
+        final MediaType contentType = response.body().contentType();
+        final Charset charset = contentType != null ? contentType.charset() : null;
+        return Jsoup.parse(openBodyStream(response, profile), charset != null ? charset.name() : null, response.request().url().toString());
+    }
+
+    private static Charset bodyCharset(Response response) {
+        final MediaType contentType = response.body().contentType();
+        return contentType != null ? contentType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+    }
+
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private final ClientProfile profile;
+        private long readBytes = 0;
+
+        private LimitedInputStream(InputStream in, long maxBytes, ClientProfile profile) {
+            super(in);
+            this.maxBytes = maxBytes;
+            this.profile = profile;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            final int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long bytes) throws IOException {
+            readBytes += bytes;
+            if (readBytes > maxBytes) {
+                throw new IOException("Response exceeds the limit of " + maxBytes + " bytes for " + profile);
+            }
         }
     }
 }
@@ -5,6 +5,7 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.Date;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 public class TimeUtils {
 
@@ -22,6 +23,19 @@ public class TimeUtils {
         return sdf.format(Date.from(zonedDateTime.toInstant()));
     }
 
+    /**
+     * @return how long ago the given epoch millis are, in the largest fitting unit, e.g. <code>5 min</code>.
+     */
+    public static String formatAge(long epochMillis) {
+        final long minutes = Math.max(0, TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - epochMillis));
+        if (minutes < 60) {
+            return minutes + " min";
+        } else if (minutes < 48 * 60) {
+            return TimeUnit.MINUTES.toHours(minutes) + " h";
+        }
+        return TimeUnit.MINUTES.toDays(minutes) + " d";
+    }
+
     public static String formatDay(ZonedDateTime zonedDateTime) {
         SimpleDateFormat sdf = new SimpleDateFormat("E MMM dd yyyy");
         sdf.setTimeZone(TimeZone.getTimeZone(zonedDateTime.getZone()));
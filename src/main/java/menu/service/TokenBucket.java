@@ -0,0 +1,39 @@
+package menu.service;
+
+/**
+ * Classic token bucket: holds up to <code>burst</code> tokens and refills at <code>permitsPerSecond</code>.<br>
+ * A caller that finds the bucket empty does not fail, but reserves the next free token ahead of time and is told how
+ * long to wait for it. Reservations that would have to wait longer than the given maximum are not made at all.
+ */
+public class TokenBucket {
+
+    private final double permitsPerSecond;
+    private final double burst;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double permitsPerSecond, double burst) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * @return how many milliseconds the caller has to wait before using its token, or <code>-1</code> if that would be
+     * longer than <code>maxWaitMillis</code>, in which case no token was taken.
+     */
+    public synchronized long reserve(long maxWaitMillis) {
+        final long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * permitsPerSecond);
+        lastRefillNanos = now;
+
+        final long waitMillis = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerSecond * 1000);
+        if (waitMillis > maxWaitMillis) {
+            return -1;
+        }
+        tokens -= 1;
+        return waitMillis;
+    }
+}
@@ -0,0 +1,66 @@
+package menu.service;
+
+import lombok.extern.log4j.Log4j2;
+import menu.bot.BiteBoardProperties;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to the virtual threads of Java 21+ without requiring a newer compiler target: the executor factory is looked up
+ * via reflection, so the same jar runs on Java 8 (with platform threads) and on Java 21 (optionally with virtual
+ * threads).
+ */
+@Log4j2
+public class VirtualThreads {
+
+    public enum ExecutionMode {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadExecutorFactory();
+
+    private static Method findVirtualThreadExecutorFactory() {
+        try {
+            return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * @return an executor that starts a new virtual thread for every task
+     * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer, running on " + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Could not create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Reads the configured execution mode. If virtual threads are configured but not supported by the running JVM, this
+     * falls back to platform threads.
+     */
+    public static ExecutionMode getConfiguredExecutionMode() {
+        final String configured = BiteBoardProperties.getProperties().getProperty(BiteBoardProperties.EXECUTION_MODE, "platform");
+        if (!"virtual".equalsIgnoreCase(configured.trim())) {
+            return ExecutionMode.PLATFORM;
+        }
+        if (!isSupported()) {
+            log.warn("Execution mode [virtual] configured, but virtual threads are not available on Java {}, using platform threads", System.getProperty("java.version"));
+            return ExecutionMode.PLATFORM;
+        }
+        return ExecutionMode.VIRTUAL;
+    }
+}
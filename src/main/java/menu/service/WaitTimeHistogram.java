@@ -0,0 +1,55 @@
+package menu.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts wait times in fixed buckets, cheap enough to record on every request. A growing share of the upper buckets
+ * shows that the limit is being approached well before requests start to be rejected.
+ */
+public class WaitTimeHistogram {
+
+    private static final long[] BUCKET_UPPER_BOUNDS_MILLIS = {0, 10, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_UPPER_BOUNDS_MILLIS.length + 1);
+
+    public void record(long waitMillis) {
+        int bucket = 0;
+        while (bucket < BUCKET_UPPER_BOUNDS_MILLIS.length && waitMillis > BUCKET_UPPER_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @return the non-empty buckets, e.g. <code>0ms=120, &lt;=100ms=4, &lt;=250ms=1</code>
+     */
+    public String describe() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < counts.length(); i++) {
+            final long count = counts.get(i);
+            if (count == 0) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            if (i == 0) {
+                builder.append("0ms");
+            } else if (i < BUCKET_UPPER_BOUNDS_MILLIS.length) {
+                builder.append("<=").append(BUCKET_UPPER_BOUNDS_MILLIS[i]).append("ms");
+            } else {
+                builder.append(">").append(BUCKET_UPPER_BOUNDS_MILLIS[BUCKET_UPPER_BOUNDS_MILLIS.length - 1]).append("ms");
+            }
+            builder.append("=").append(count);
+        }
+        return builder.length() > 0 ? builder.toString() : "none";
+    }
+}
@@ -0,0 +1,59 @@
+package menu.providers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MenuHistoryStoreTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    void storedMenusSurviveReopening() throws IOException {
+        final File file = new File(directory, "history.bin");
+        final MenuTime date = MenuTime.fromLocalDate(LocalDate.now());
+
+        final MenuHistoryStore store = new MenuHistoryStore(file, 0);
+        store.put("Provider", date, menu(date, "Menu 1"));
+        store.close();
+
+        final MenuHistoryStore reopened = new MenuHistoryStore(file, 0);
+        final MenuHistoryStore.StoredMenu stored = reopened.get("Provider", date);
+        assertNotNull(stored);
+        assertEquals("Menu 1", stored.getMenuItems().get(0).getName());
+        reopened.close();
+    }
+
+    @Test
+    void accessAfterCloseIsIgnored() throws IOException {
+        final File file = new File(directory, "history.bin");
+        final MenuTime date = MenuTime.fromLocalDate(LocalDate.now());
+
+        final MenuHistoryStore store = new MenuHistoryStore(file, 0);
+        store.put("Provider", date, menu(date, "Menu 1"));
+        store.close();
+
+        // fetches that were still running during the shutdown complete after it
+        assertDoesNotThrow(() -> store.put("Provider", date, menu(date, "Menu 2")));
+        assertNull(assertDoesNotThrow(() -> store.get("Provider", date)));
+        assertDoesNotThrow(store::compact);
+
+        final MenuHistoryStore reopened = new MenuHistoryStore(file, 0);
+        assertEquals("Menu 1", reopened.get("Provider", date).getMenuItems().get(0).getName());
+        reopened.close();
+    }
+
+    private static List<MenuItem> menu(MenuTime date, String name) {
+        final MenuItem item = new MenuItem(date);
+        item.setName(name);
+        return Collections.singletonList(item);
+    }
+}
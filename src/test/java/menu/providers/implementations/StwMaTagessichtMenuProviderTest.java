@@ -0,0 +1,90 @@
+package menu.providers.implementations;
+
+import menu.providers.MenuItem;
+import menu.providers.MenuTime;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StwMaTagessichtMenuProviderTest {
+
+    private static final String WEEK_RESPONSE = "/fixtures/stw-ma-tagessicht-api-week.json";
+    private static final MenuTime MONDAY = new MenuTime(2026, 10, 19);
+    private static final MenuTime WEDNESDAY = new MenuTime(2026, 10, 21);
+    private static final MenuTime FRIDAY = new MenuTime(2026, 10, 23);
+
+    private MockWebServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void weekResponseIsSplitIntoDays() throws Exception {
+        enqueueWeek(loadFixture(WEEK_RESPONSE));
+
+        final Map<MenuTime, List<MenuItem>> menus = createProvider("901").getMenuItemsForRange(MONDAY, FRIDAY).get(10, TimeUnit.SECONDS);
+
+        assertEquals(5, menus.size());
+        assertEquals(5, menus.get(MONDAY).size());
+        assertEquals(4, menus.get(FRIDAY).size());
+        for (Map.Entry<MenuTime, List<MenuItem>> day : menus.entrySet()) {
+            for (MenuItem item : day.getValue()) {
+                assertEquals(day.getKey(), item.getMenuTime());
+            }
+        }
+        assertEquals(1, server.getRequestCount());
+        assertTrue(server.takeRequest().getBody().readUtf8().contains("mode=week"));
+    }
+
+    @Test
+    void tableWithAnImpossibleDateIsSkipped() throws Exception {
+        enqueueWeek(loadFixture(WEEK_RESPONSE).replace("Mittwoch, 21.10.2026", "Mittwoch, 31.02.2026"));
+
+        final Map<MenuTime, List<MenuItem>> menus = createProvider("902").getMenuItemsForRange(MONDAY, FRIDAY).get(10, TimeUnit.SECONDS);
+
+        assertEquals(4, menus.size());
+        assertFalse(menus.containsKey(WEDNESDAY));
+        assertEquals(5, menus.get(MONDAY).size());
+        // the other days are still taken from the week response instead of falling back to single requests
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private StwMaTagessichtMenuProvider createProvider(String locationId) {
+        final String url = server.url("/").toString();
+        return new StwMaTagessichtMenuProvider(url.substring(0, url.length() - 1), locationId, "Canteen " + locationId, "", "");
+    }
+
+    private void enqueueWeek(String body) {
+        server.enqueue(new MockResponse.Builder()
+                .addHeader("Content-Type", "application/json; charset=utf-8")
+                .body(body)
+                .build());
+    }
+
+    private static String loadFixture(String resourceName) throws IOException {
+        try (InputStream in = StwMaTagessichtMenuProviderTest.class.getResourceAsStream(resourceName)) {
+            assertNotNull(in, resourceName);
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package menu.service;
+
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import okhttp3.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerInterceptorTest {
+
+    private static final long CALL_TIMEOUT_MILLIS = 300;
+
+    private MockWebServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void callTimeoutsOpenTheCircuit() {
+        final CircuitBreakerInterceptor circuitBreaker = new CircuitBreakerInterceptor("Test", 2, 60_000);
+        final OkHttpClient client = createClient(circuitBreaker);
+        enqueueStalledResponses(2);
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(InterruptedIOException.class, () -> client.newCall(request().build()).execute().close());
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(server.getHostName()));
+        assertThrows(CircuitBreaker.CircuitOpenException.class, () -> client.newCall(request().build()).execute().close());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void callsCancelledByTheCallerDoNotCount() throws Exception {
+        final CircuitBreakerInterceptor circuitBreaker = new CircuitBreakerInterceptor("Test", 1, 60_000);
+        final OkHttpClient client = createClient(circuitBreaker);
+        enqueueStalledResponses(1);
+
+        final CircuitBreakerInterceptor.CallerCancellation cancellation = new CircuitBreakerInterceptor.CallerCancellation();
+        final Call call = client.newCall(request().tag(CircuitBreakerInterceptor.CallerCancellation.class, cancellation).build());
+        final CompletableFuture<IOException> failure = new CompletableFuture<>();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call failedCall, IOException e) {
+                failure.complete(e);
+            }
+
+            @Override
+            public void onResponse(Call successfulCall, Response response) {
+                response.close();
+                failure.complete(null);
+            }
+        });
+
+        Thread.sleep(CALL_TIMEOUT_MILLIS / 3);
+        cancellation.cancel();
+        call.cancel();
+
+        assertNotNull(failure.get(5, TimeUnit.SECONDS));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(server.getHostName()));
+    }
+
+    private OkHttpClient createClient(CircuitBreakerInterceptor circuitBreaker) {
+        return new OkHttpClient.Builder()
+                .callTimeout(CALL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .addNetworkInterceptor(circuitBreaker)
+                .build();
+    }
+
+    private void enqueueStalledResponses(int count) {
+        for (int i = 0; i < count; i++) {
+            server.enqueue(new MockResponse.Builder()
+                    .headersDelay(CALL_TIMEOUT_MILLIS * 10, TimeUnit.MILLISECONDS)
+                    .body("too late")
+                    .build());
+        }
+    }
+
+    private Request.Builder request() {
+        return new Request.Builder().url(server.url("/menu"));
+    }
+}
@@ -0,0 +1,73 @@
+package menu.service;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonStringFieldReaderTest {
+
+    @Test
+    void decodesTheFieldLikeAJsonParser() throws IOException {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append("<div class=\"row-").append(i).append("\">Menü \\ / \t").append((char) 1).append((char) ('a' + i % 26)).append("</div>\n");
+        }
+        final String json = new JSONObject()
+                .put("status", "ok")
+                .put("location", 611)
+                .put("meta", new JSONObject().put("tags", new String[]{"a", "b\"}"}))
+                .put("content", content.toString())
+                .put("valid", true)
+                .toString();
+        final String expected = new JSONObject(json).getString("content");
+
+        for (int readLength : new int[]{1, 7, 1024, 8192}) {
+            assertEquals(expected, readAll(new JsonStringFieldReader(new StringReader(json), "content"), readLength));
+            // a source that hands out only a few characters per read splits escapes at every position
+            assertEquals(expected, readAll(new JsonStringFieldReader(new TrickleReader(new StringReader(json), 3), "content"), readLength));
+        }
+    }
+
+    @Test
+    void skipsScalarsBeforeTheField() throws IOException {
+        final String json = "{\"a\":1, \"b\" : null,\"c\":-2.5e3 ,\"d\":true,\"content\":\"\\u00e4\\\"x\"}";
+        assertEquals("ä\"x", readAll(new JsonStringFieldReader(new StringReader(json), "content"), 16));
+    }
+
+    @Test
+    void failsForMissingOrUnterminatedFields() {
+        assertThrows(IOException.class, () -> readAll(new JsonStringFieldReader(new StringReader("{\"other\":\"x\"}"), "content"), 16));
+        assertThrows(IOException.class, () -> readAll(new JsonStringFieldReader(new StringReader("{\"content\":1}"), "content"), 16));
+        assertThrows(IOException.class, () -> readAll(new JsonStringFieldReader(new StringReader("{\"content\":\"open"), "content"), 16));
+    }
+
+    private static String readAll(Reader reader, int readLength) throws IOException {
+        final StringBuilder result = new StringBuilder();
+        final char[] buffer = new char[readLength];
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            result.append(buffer, 0, read);
+        }
+        return result.toString();
+    }
+
+    private static class TrickleReader extends FilterReader {
+        private final int maxChars;
+
+        TrickleReader(Reader in, int maxChars) {
+            super(in);
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(length, maxChars));
+        }
+    }
+}